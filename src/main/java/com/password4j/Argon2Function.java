@@ -17,12 +17,12 @@
 package com.password4j;
 
 import com.password4j.types.Argon2;
+import com.password4j.types.MemoryBackend;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.*;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -42,8 +42,6 @@ public class Argon2Function extends AbstractHashingFunction
 
     public static final int ARGON2_ADDRESSES_IN_BLOCK = 128;
 
-    private static final ConcurrentMap<String, Argon2Function> INSTANCES = new ConcurrentHashMap<>();
-
     private static final int ARGON2_SYNC_POINTS = 4;
 
     private static final int ARGON2_INITIAL_SEED_LENGTH = 72;
@@ -51,19 +49,74 @@ public class Argon2Function extends AbstractHashingFunction
     private static final int ARGON2_BLOCK_SIZE = 1024;
 
     public static final int ARGON2_QWORDS_IN_BLOCK = ARGON2_BLOCK_SIZE / 8;
+
+    private static final BlockMemory.Layout DEFAULT_LAYOUT = PropertyReader.readEnum("hash.argon2.layout", BlockMemory.Layout.MATRIX);
+
+    private static final MemoryBackend DEFAULT_BACKEND = PropertyReader.readEnum("hash.argon2.memory.backend", MemoryBackend.HEAP);
+
+    static final int MAX_PHASER_PARTIES = 65535;
+
+    private static final MemoryArena<BlockMemory> ARENA = new MemoryArena<BlockMemory>(
+            PropertyReader.readInt("hash.argon2.arena.size", Utils.AVAILABLE_PROCESSORS), arenaMaxBytes())
+    {
+        @Override
+        protected BlockMemory allocate(long key)
+        {
+            BlockMemory.Layout layout = BlockMemory.Layout.values()[(int) (key >>> 24) & 0xF];
+            MemoryBackend backend = MemoryBackend.values()[(int) (key >>> 28) & 0xF];
+            return BlockMemory.allocate(layout, backend, (int) (key >>> 32), (int) (key & 0xFFFFFF));
+        }
+
+        @Override
+        protected void wipe(BlockMemory blockMemory)
+        {
+            blockMemory.wipe();
+        }
+
+        @Override
+        protected void dispose(BlockMemory blockMemory)
+        {
+            blockMemory.free();
+        }
+
+        @Override
+        protected long sizeOf(long key)
+        {
+            return (key >>> 32) * ARGON2_BLOCK_SIZE;
+        }
+    };
+
+    private static final Recycler<Argon2Hash> PARSED = new Recycler<Argon2Hash>()
+    {
+        @Override
+        protected Argon2Hash create()
+        {
+            return new Argon2Hash();
+        }
+    };
+
     private final int iterations;
     private final int memory;
-    private final long[][] initialBlockMemory;
+    private final int memoryBlocks;
     private final int parallelism;
     private final int outputLength;
     private final int segmentLength;
     private final Argon2 variant;
     private final int version;
     private final int laneLength;
-    private ExecutorService service;
+    private final BlockMemory.Layout layout;
+    private final MemoryBackend backend;
 
     Argon2Function(int memory, int iterations, int parallelism, int outputLength, Argon2 variant, int version)
     {
+        this(memory, iterations, parallelism, outputLength, variant, version, DEFAULT_LAYOUT, DEFAULT_BACKEND);
+    }
+
+    Argon2Function(int memory, int iterations, int parallelism, int outputLength, Argon2 variant, int version,
+                   BlockMemory.Layout layout, MemoryBackend backend)
+    {
+        this.layout = layout;
+        this.backend = backend;
         this.variant = variant;
         this.iterations = iterations;
         this.memory = memory;
@@ -81,18 +134,7 @@ public class Argon2Function extends AbstractHashingFunction
         segmentLength = memoryBlocks / (parallelism * ARGON2_SYNC_POINTS);
         this.laneLength = segmentLength * ARGON2_SYNC_POINTS;
 
-        memoryBlocks = segmentLength * (parallelism * ARGON2_SYNC_POINTS);
-
-        initialBlockMemory = new long[memoryBlocks][ARGON2_QWORDS_IN_BLOCK];
-        for (int i = 0; i < memoryBlocks; i++)
-        {
-            initialBlockMemory[i] = new long[ARGON2_QWORDS_IN_BLOCK];
-        }
-
-        if (parallelism >= 1)
-        {
-            service = Utils.createExecutorService();
-        }
+        this.memoryBlocks = segmentLength * (parallelism * ARGON2_SYNC_POINTS);
     }
 
     /**
@@ -128,17 +170,63 @@ public class Argon2Function extends AbstractHashingFunction
     public static Argon2Function getInstance(int memory, int iterations, int parallelism, int outputLength, Argon2 type,
                                              int version)
     {
-        String key = getUID(memory, iterations, parallelism, outputLength, type, version);
-        if (INSTANCES.containsKey(key))
-        {
-            return INSTANCES.get(key);
-        }
-        else
+        return getInstance(memory, iterations, parallelism, outputLength, type, version, DEFAULT_BACKEND);
+    }
+
+    /**
+     * Creates a singleton instance, depending on the provided
+     * logarithmic memory, number of iterations, parallelism, length og the output, type, version
+     * and on where the working memory is allocated.
+     *
+     * @param memory       logarithmic memory
+     * @param iterations   number of iterations
+     * @param parallelism  level of parallelism
+     * @param outputLength length of the final hash
+     * @param type         argon2 type (i, d or id)
+     * @param version      version of the algorithm (16 or 19)
+     * @param backend      where the working memory is allocated
+     * @return a singleton instance
+     * @since 1.8.5
+     */
+    public static Argon2Function getInstance(int memory, int iterations, int parallelism, int outputLength, Argon2 type,
+                                             int version, MemoryBackend backend)
+    {
+        InstanceRegistry.Key key = InstanceRegistry.key(Argon2Function.class, (long) memory << 32 | iterations & 0xFFFFFFFFL,
+                (long) parallelism << 32 | outputLength & 0xFFFFFFFFL, (long) version << 32 | type.ordinal() << 8 | backend.ordinal(), null);
+        Argon2Function function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            Argon2Function function = new Argon2Function(memory, iterations, parallelism, outputLength, type, version);
-            INSTANCES.put(key, function);
-            return function;
+            function = InstanceRegistry.putIfAbsent(key,
+                    new Argon2Function(memory, iterations, parallelism, outputLength, type, version, DEFAULT_LAYOUT, backend));
         }
+        return function;
+    }
+
+    /**
+     * Gives back the working memory kept for reuse by the idle computations.
+     * Instances do not hold any working memory: it is leased only for the duration of a hash.
+     *
+     * @since 1.8.5
+     */
+    public static void releaseWorkingMemory()
+    {
+        ARENA.clear();
+    }
+
+    /**
+     * @return the number of bytes of working memory kept for reuse
+     * @since 1.8.5
+     */
+    public static long getIdleWorkingMemory()
+    {
+        return ARENA.getIdleBytes();
+    }
+
+    private static long arenaMaxBytes()
+    {
+        // in MiB: idle memory is not accounted by MemoryBudget, so it is bounded unless explicitly unlimited
+        int maxMemory = PropertyReader.readInt("hash.argon2.arena.memory", 256);
+        return maxMemory < 0 ? Long.MAX_VALUE : maxMemory * 1024L * 1024L;
     }
 
     /**
@@ -151,14 +239,64 @@ public class Argon2Function extends AbstractHashingFunction
      */
     public static Argon2Function getInstanceFromHash(String hashed)
     {
-        Object[] params = decodeHash(hashed);
-        Argon2 type = Argon2.valueOf(((String) params[0]).toUpperCase());
-        int version = (int) params[1];
-        int memory = (int) params[2];
-        int iterations = (int) params[3];
-        int parallelism = (int) params[4];
-        int outputLength = ((byte[]) params[6]).length;
-        return getInstance(memory, iterations, parallelism, outputLength, type, version);
+        Argon2Hash parsed = PARSED.get();
+        try
+        {
+            if (!parsed.parse(hashed))
+            {
+                throw new BadParametersException("Invalid hashed value");
+            }
+            return getInstance(parsed);
+        }
+        finally
+        {
+            // the caller's string must not outlive this call in the per-thread hash
+            parsed.reset();
+        }
+    }
+
+    /**
+     * Same as {@link #getInstanceFromHash(String)}, but the parsed hash is kept by the current thread
+     * (when {@code global.recycler} is {@code threadlocal}) so that a following
+     * {@link #check(byte[], byte[], byte[], CharSequence)} of the same hash does not read it again.
+     *
+     * @param hashed an already hashed password
+     * @return a singleton instance based on the given hash
+     */
+    static Argon2Function getInstanceFromHash(byte[] hashed)
+    {
+        return getInstance(parse(hashed));
+    }
+
+    private static Argon2Function getInstance(Argon2Hash parsed)
+    {
+        return getInstance(parsed.getMemory(), parsed.getIterations(), parsed.getParallelism(), parsed.getDigestLength(),
+                parsed.getType(), parsed.getVersion());
+    }
+
+    /**
+     * Reads the hash into the view of the current thread, unless the view already holds it.
+     *
+     * @param hashed an already hashed password
+     * @return the parsed view
+     */
+    private static Argon2Hash parse(byte[] hashed)
+    {
+        Argon2Hash parsed = PARSED.get();
+        if (!parsed.isParsed(hashed) && !parsed.parse(hashed))
+        {
+            throw new BadParametersException("Invalid hashed value");
+        }
+        return parsed;
+    }
+
+    /**
+     * @param hashed an already hashed password
+     * @return {@code true} if the view of the current thread holds the given hash
+     */
+    static boolean isParsed(byte[] hashed)
+    {
+        return PARSED.get().isParsed(hashed);
     }
 
     protected static String getUID(int memory, int iterations, int parallelism, int outputLength, Argon2 type, int version)
@@ -201,22 +339,51 @@ public class Argon2Function extends AbstractHashingFunction
         }
     }
 
-    private static void nextAddresses(long[] zeroBlock, long[] inputBlock, long[] addressBlock)
+    private static void nextAddresses(BlockMemory.Scratch scratch)
     {
-        inputBlock[6]++;
-        fillBlock(zeroBlock, inputBlock, addressBlock, false);
-        fillBlock(zeroBlock, addressBlock, addressBlock, false);
+        scratch.input[6]++;
+        fillBlock(scratch, scratch.zero, 0, scratch.input, 0, scratch.address, 0, false);
+        fillBlock(scratch, scratch.zero, 0, scratch.address, 0, scratch.address, 0, false);
     }
 
-    private static void fillBlock(long[] x, long[] y, long[] currentBlock, boolean withXor)
+    private static void fillBlock(BlockMemory.Scratch scratch, long[] x, int xOffset, long[] y, int yOffset, long[] current, // NOSONAR
+                                  int currentOffset, boolean withXor)
     {
+        long[] r = scratch.r;
+        long[] z = scratch.z;
 
-        long[] r = new long[ARGON2_QWORDS_IN_BLOCK];
-        long[] z = new long[ARGON2_QWORDS_IN_BLOCK];
-
-        Utils.xor(r, x, y);
+        for (int i = 0; i < ARGON2_QWORDS_IN_BLOCK; i++)
+        {
+            r[i] = x[xOffset + i] ^ y[yOffset + i];
+        }
         System.arraycopy(r, 0, z, 0, z.length);
 
+        permute(z);
+
+        if (withXor)
+        {
+            for (int i = 0; i < ARGON2_QWORDS_IN_BLOCK; i++)
+            {
+                current[currentOffset + i] ^= r[i] ^ z[i];
+            }
+        }
+        else
+        {
+            for (int i = 0; i < ARGON2_QWORDS_IN_BLOCK; i++)
+            {
+                current[currentOffset + i] = r[i] ^ z[i];
+            }
+        }
+    }
+
+    /**
+     * Permutation <i>P</i> of the compression function, based on the BlaMka round.
+     * It is applied in place first to the 8 rows and then to the 8 columns of 16 qwords of the block.
+     *
+     * @param z a block of {@value #ARGON2_QWORDS_IN_BLOCK} qwords
+     */
+    static void permute(long[] z)
+    {
         for (int i = 0; i < 8; i++)
         {
 
@@ -231,15 +398,6 @@ public class Argon2Function extends AbstractHashingFunction
                     2 * i + 65, 2 * i + 80, 2 * i + 81, 2 * i + 96, 2 * i + 97, 2 * i + 112, 2 * i + 113);
 
         }
-
-        if (withXor)
-        {
-            Utils.xor(currentBlock, r, z, currentBlock);
-        }
-        else
-        {
-            Utils.xor(currentBlock, r, z);
-        }
     }
 
     private static void roundFunction(long[] block, int v0, int v1, int v2, int v3, int v4, int v5, int v6, int v7, int v8,
@@ -286,40 +444,12 @@ public class Argon2Function extends AbstractHashingFunction
         block[v] = (temp >>> c) | (temp << (64 - c));
     }
 
-    private static Object[] decodeHash(String hash)
-    {
-        Object[] result = new Object[7];
-        String[] parts = hash.split("\\$");
-        if (parts.length == 6)
-        {
-            result[0] = remove(parts[1], "argon2");
-            String[] params = parts[3].split(",");
-            result[1] = Integer.parseInt(remove(parts[2], "v="));
-            result[2] = Integer.parseInt(remove(params[0], "m="));
-            result[3] = Integer.parseInt(remove(params[1], "t="));
-            result[4] = Integer.parseInt(remove(params[2], "p="));
-            result[5] = Utils.decodeBase64(parts[4]);
-            result[6] = Utils.decodeBase64(parts[5]);
-            return result;
-        }
-        else
-        {
-            throw new BadParametersException("Invalid hashed value");
-        }
-
-    }
-
     protected static String toString(int memory, int iterations, int parallelism, int outputLength, Argon2 type, int version)
     {
         return "m=" + memory + ", i=" + iterations + ", p=" + parallelism + ", l=" + outputLength + ", t=" + type
                 .name() + ", v=" + version;
     }
 
-    private static String remove(String source, String remove)
-    {
-        return source.substring(remove.length());
-    }
-
     @Override
     public Hash hash(CharSequence plainTextPassword)
     {
@@ -360,15 +490,29 @@ public class Argon2Function extends AbstractHashingFunction
 
     private Hash internalHash(byte[] plainTextPassword, byte[] salt, CharSequence pepper)
     {
-        long[][] blockMemory = copyOf(initialBlockMemory);
-
         if (salt == null)
         {
             salt = SaltGenerator.generate();
         }
-        initialize(plainTextPassword, salt, Utils.fromCharSequenceToBytes(pepper), null, blockMemory);
-        fillMemoryBlocks(blockMemory);
-        byte[] hash = ending(blockMemory);
+
+        byte[] hash;
+        long reserved = MemoryBudget.acquire(memoryBlocks * 1024L);
+        long arenaKey = getArenaKey();
+        BlockMemory blockMemory = null;
+        try
+        {
+            blockMemory = ARENA.lease(arenaKey);
+            initialize(plainTextPassword, salt, Utils.fromCharSequenceToBytes(pepper), null, blockMemory);
+            fillMemoryBlocks(blockMemory);
+            hash = ending(blockMemory);
+        }
+        finally
+        {
+            // the memory is wiped even if the computation failed: no worker is writing on it anymore
+            ARENA.release(arenaKey, blockMemory);
+            MemoryBudget.release(reserved);
+        }
+
         Hash result = new Hash(this, encodeHash(hash, salt), hash, salt);
         result.setPepper(pepper);
         return result;
@@ -401,8 +545,10 @@ public class Argon2Function extends AbstractHashingFunction
         byte[] theSalt;
         if (salt == null || salt.length == 0)
         {
-            Object[] params = decodeHash(Utils.fromBytesToString(hashed));
-            theSalt = (byte[]) params[5];
+            Argon2Hash parsed = parse(hashed);
+            theSalt = new byte[parsed.getSaltLength()];
+            parsed.decodeSalt(theSalt, 0);
+            parsed.reset();
         }
         else
         {
@@ -467,7 +613,16 @@ public class Argon2Function extends AbstractHashingFunction
         return version;
     }
 
-    private void initialize(byte[] plainTextPassword, byte[] salt, byte[] secret, byte[] additional, long[][] blockMemory)
+    /**
+     * @return where the working memory is allocated
+     * @since 1.8.5
+     */
+    public MemoryBackend getMemoryBackend()
+    {
+        return backend;
+    }
+
+    private void initialize(byte[] plainTextPassword, byte[] salt, byte[] secret, byte[] additional, BlockMemory blockMemory)
     {
         Blake2b blake2b = new Blake2b(ARGON2_INITIAL_DIGEST_LENGTH);
 
@@ -504,10 +659,13 @@ public class Argon2Function extends AbstractHashingFunction
             System.arraycopy(iBytes, 0, initialHashWithOnes, ARGON2_INITIAL_DIGEST_LENGTH + 4, 4);
 
             byte[] blockHashBytes = blake2bLong(initialHashWithZeros, ARGON2_BLOCK_SIZE);
-            blockMemory[i * laneLength] = Utils.fromBytesToLongs(blockHashBytes);
+            long[] block = blockMemory.scratch(i).current;
+            Utils.fromBytesToLongs(blockHashBytes, block, 0);
+            blockMemory.store(i * laneLength, block);
 
             blockHashBytes = blake2bLong(initialHashWithOnes, ARGON2_BLOCK_SIZE);
-            blockMemory[i * laneLength + 1] = Utils.fromBytesToLongs(blockHashBytes);
+            Utils.fromBytesToLongs(blockHashBytes, block, 0);
+            blockMemory.store(i * laneLength + 1, block);
         }
 
     }
@@ -563,7 +721,7 @@ public class Argon2Function extends AbstractHashingFunction
         return buff;
     }
 
-    private void fillMemoryBlocks(long[][] blockMemory)
+    private void fillMemoryBlocks(BlockMemory blockMemory)
     {
         if (parallelism == 1)
         {
@@ -575,7 +733,7 @@ public class Argon2Function extends AbstractHashingFunction
         }
     }
 
-    private void fillMemoryBlockSingleThreaded(long[][] blockMemory)
+    private void fillMemoryBlockSingleThreaded(BlockMemory blockMemory)
     {
         for (int pass = 0; pass < iterations; pass++)
         {
@@ -586,47 +744,27 @@ public class Argon2Function extends AbstractHashingFunction
         }
     }
 
-    private void fillMemoryBlockMultiThreaded(long[][] blockMemory)
+    private void fillMemoryBlockMultiThreaded(BlockMemory blockMemory)
     {
-        List<Future<?>> futures = new ArrayList<>();
+        LaneWorkers workers = new LaneWorkers(blockMemory);
 
-        for (int i = 0; i < iterations; i++)
+        // the caller is one of the workers: if the pool is saturated it fills all the lanes by itself
+        for (int i = 1; i < parallelism; i++)
         {
-            for (int j = 0; j < ARGON2_SYNC_POINTS; j++)
+            if (!WorkerPool.offer(workers))
             {
-                for (int k = 0; k < parallelism; k++)
-                {
-                    int pass = i;
-                    int lane = k;
-                    int slice = j;
-
-                    Future<?> future = service.submit(() -> fillSegment(pass, lane, slice, blockMemory));
-
-                    futures.add(future);
-                }
-
-                try
-                {
-                    for (Future<?> f : futures)
-                    {
-                        f.get();
-                    }
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    clear(blockMemory);
-                    Thread.currentThread().interrupt();
-                }
+                break;
             }
         }
+        workers.run();
+        workers.await();
     }
 
-    private void fillSegment(int pass, int lane, int slice, long[][] blockMemory)
+    private void fillSegment(int pass, int lane, int slice, BlockMemory blockMemory)
     {
 
-        long[] addressBlock = null;
-        long[] inputBlock = null;
-        long[] zeroBlock = null;
+        BlockMemory.Scratch scratch = blockMemory.scratch(lane);
+        BlockMemory.Heap heap = blockMemory instanceof BlockMemory.Heap ? (BlockMemory.Heap) blockMemory : null;
 
         boolean dataIndependentAddressing = isDataIndependentAddressing(pass, slice);
         int startingIndex = getStartingIndex(pass, slice);
@@ -635,28 +773,47 @@ public class Argon2Function extends AbstractHashingFunction
 
         if (dataIndependentAddressing)
         {
-            addressBlock = new long[ARGON2_QWORDS_IN_BLOCK];
-            zeroBlock = new long[ARGON2_QWORDS_IN_BLOCK];
-            inputBlock = new long[ARGON2_QWORDS_IN_BLOCK];
+            initAddressBlocks(pass, lane, slice, scratch);
+        }
 
-            initAddressBlocks(pass, lane, slice, zeroBlock, inputBlock, addressBlock, blockMemory);
+        // when blocks are copied, the previous block is always the one written in the last iteration
+        long[] prev = scratch.prev;
+        long[] current = scratch.current;
+        if (heap == null)
+        {
+            blockMemory.load(prevOffset, prev);
         }
 
         for (int i = startingIndex; i < segmentLength; i++, currentOffset++, prevOffset++)
         {
             prevOffset = rotatePrevOffset(currentOffset, prevOffset);
 
-            long pseudoRandom = getPseudoRandom(i, addressBlock, inputBlock, zeroBlock, prevOffset, dataIndependentAddressing,
-                    blockMemory);
+            long pseudoRandom = getPseudoRandom(i, scratch, prevOffset, dataIndependentAddressing, blockMemory);
             int refLane = getRefLane(pass, lane, slice, pseudoRandom);
             int refColumn = getRefColumn(pass, slice, i, pseudoRandom, refLane == lane);
 
-            long[] prevBlock = blockMemory[prevOffset];
-            long[] refBlock = blockMemory[((laneLength) * refLane + refColumn)];
-            long[] currentBlock = blockMemory[currentOffset];
+            int refOffset = laneLength * refLane + refColumn;
 
             boolean withXor = isWithXor(pass);
-            fillBlock(prevBlock, refBlock, currentBlock, withXor);
+            if (heap != null)
+            {
+                fillBlock(scratch, heap.array(prevOffset), heap.offset(prevOffset), heap.array(refOffset), heap.offset(refOffset),
+                        heap.array(currentOffset), heap.offset(currentOffset), withXor);
+            }
+            else
+            {
+                blockMemory.load(refOffset, scratch.ref);
+                if (withXor)
+                {
+                    blockMemory.load(currentOffset, current);
+                }
+                fillBlock(scratch, prev, 0, scratch.ref, 0, current, 0, withXor);
+                blockMemory.store(currentOffset, current);
+
+                long[] tmp = prev;
+                prev = current;
+                current = tmp;
+            }
         }
     }
 
@@ -688,20 +845,20 @@ public class Argon2Function extends AbstractHashingFunction
         return prevOffset;
     }
 
-    private long getPseudoRandom(int index, long[] addressBlock, long[] inputBlock, long[] zeroBlock, int prevOffset,
-                                 boolean dataIndependentAddressing, long[][] blockMemory)
+    private long getPseudoRandom(int index, BlockMemory.Scratch scratch, int prevOffset, boolean dataIndependentAddressing,
+                                 BlockMemory blockMemory)
     {
         if (dataIndependentAddressing)
         {
             if (index % ARGON2_ADDRESSES_IN_BLOCK == 0)
             {
-                nextAddresses(zeroBlock, inputBlock, addressBlock);
+                nextAddresses(scratch);
             }
-            return addressBlock[index % ARGON2_ADDRESSES_IN_BLOCK];
+            return scratch.address[index % ARGON2_ADDRESSES_IN_BLOCK];
         }
         else
         {
-            return blockMemory[prevOffset][0];
+            return blockMemory.qword(prevOffset, 0);
         }
     }
 
@@ -716,20 +873,21 @@ public class Argon2Function extends AbstractHashingFunction
         return refLane;
     }
 
-    private void initAddressBlocks(int pass, int lane, int slice, long[] zeroBlock, long[] inputBlock, long[] addressBlock,
-                                   long[][] blockMemory)
+    private void initAddressBlocks(int pass, int lane, int slice, BlockMemory.Scratch scratch)
     {
+        long[] inputBlock = scratch.input;
         inputBlock[0] = Utils.intToLong(pass);
         inputBlock[1] = Utils.intToLong(lane);
         inputBlock[2] = Utils.intToLong(slice);
-        inputBlock[3] = Utils.intToLong(blockMemory.length);
+        inputBlock[3] = Utils.intToLong(memoryBlocks);
         inputBlock[4] = Utils.intToLong(iterations);
         inputBlock[5] = Utils.intToLong(variant.ordinal());
+        inputBlock[6] = 0;
 
         if (pass == 0 && slice == 0)
         {
 
-            nextAddresses(zeroBlock, inputBlock, addressBlock);
+            nextAddresses(scratch);
         }
     }
 
@@ -780,15 +938,18 @@ public class Argon2Function extends AbstractHashingFunction
         return !(pass == 0 || version == ARGON2_VERSION_10);
     }
 
-    private byte[] ending(long[][] blockMemory)
+    private byte[] ending(BlockMemory blockMemory)
     {
 
-        long[] finalBlock = blockMemory[laneLength - 1];
+        long[] finalBlock = new long[ARGON2_QWORDS_IN_BLOCK];
+        blockMemory.load(laneLength - 1, finalBlock);
 
+        long[] lastBlock = blockMemory.scratch(0).current;
         for (int i = 1; i < parallelism; i++)
         {
             int lastBlockInLane = i * laneLength + (laneLength - 1);
-            Utils.xor(finalBlock, blockMemory[lastBlockInLane]);
+            blockMemory.load(lastBlockInLane, lastBlock);
+            Utils.xor(finalBlock, lastBlock);
         }
 
         byte[] finalBlockBytes = new byte[ARGON2_BLOCK_SIZE];
@@ -799,29 +960,18 @@ public class Argon2Function extends AbstractHashingFunction
             System.arraycopy(bytes, 0, finalBlockBytes, i * bytes.length, bytes.length);
         }
 
-        byte[] finalResult = blake2bLong(finalBlockBytes, outputLength);
-
-        clear(blockMemory);
-
-        return finalResult;
-    }
-
-    private void clear(long[][] blockMemory)
-    {
-        for (long[] block : blockMemory)
-        {
-            Arrays.fill(block, 0);
-        }
+        return blake2bLong(finalBlockBytes, outputLength);
     }
 
-    private long[][] copyOf(long[][] old)
+    /**
+     * The shape of the working memory only depends on the number
+     * of blocks, on its layout and backend and on the number of lanes.
+     *
+     * @return the key used to lease the working memory from the arena
+     */
+    private long getArenaKey()
     {
-        long[][] current = new long[old.length][ARGON2_QWORDS_IN_BLOCK];
-        for (int i = 0; i < old.length; i++)
-        {
-            System.arraycopy(current[i], 0, old[i], 0, ARGON2_QWORDS_IN_BLOCK);
-        }
-        return current;
+        return ((long) memoryBlocks << 32) | ((long) backend.ordinal() << 28) | ((long) layout.ordinal() << 24) | parallelism;
     }
 
     private String encodeHash(byte[] hash, byte[] salt)
@@ -859,4 +1009,169 @@ public class Argon2Function extends AbstractHashingFunction
     {
         return getClass().getSimpleName() + '[' + toString(memory, iterations, parallelism, outputLength, variant, version) + ']';
     }
+
+    /**
+     * A {@link Phaser} cannot register more than {@value #MAX_PHASER_PARTIES} parties, while Argon2 allows
+     * up to 2<sup>24</sup>-1 lanes: beyond that limit the lanes arrive at child phasers of a common root.
+     *
+     * @param lanes the number of lanes
+     * @param steps the number of phases before terminating
+     * @return the phasers, where the lane {@code l} arrives at the phaser {@code l / MAX_PHASER_PARTIES}
+     */
+    static Phaser[] lanePhasers(int lanes, final int steps)
+    {
+        int groups = (lanes + MAX_PHASER_PARTIES - 1) / MAX_PHASER_PARTIES;
+        Phaser root = new Phaser(groups == 1 ? lanes : 0)
+        {
+            @Override
+            protected boolean onAdvance(int phase, int registeredParties)
+            {
+                return phase + 1 >= steps || registeredParties == 0;
+            }
+        };
+        if (groups == 1)
+        {
+            return new Phaser[] {root};
+        }
+
+        Phaser[] phasers = new Phaser[groups];
+        for (int g = 0; g < groups; g++)
+        {
+            phasers[g] = new Phaser(root, Math.min(MAX_PHASER_PARTIES, lanes - g * MAX_PHASER_PARTIES));
+        }
+        return phasers;
+    }
+
+    /**
+     * Workers filling the lanes of a single hash. The computation is split in steps, one for each
+     * pair of (pass, slice): in each step the workers claim the lanes to be filled and then meet at
+     * a {@link Phaser} that advances once all the lanes of the step have been filled.
+     * <p>
+     * Lanes are claimed and not owned, so any worker can complete the whole computation: a worker that
+     * starts late, because the pool is busy, simply finds no lane left to claim and never blocks the others.
+     * The calling thread is itself a worker, so the computation never depends on the pool.
+     */
+    private final class LaneWorkers implements Runnable
+    {
+        private final BlockMemory blockMemory;
+
+        private final int steps;
+
+        private final AtomicIntegerArray claims;
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final Phaser[] phasers;
+
+        private final Phaser phaser;
+
+        private int running;
+
+        LaneWorkers(BlockMemory blockMemory)
+        {
+            this.blockMemory = blockMemory;
+            this.steps = iterations * ARGON2_SYNC_POINTS;
+            this.claims = new AtomicIntegerArray(steps);
+            this.phasers = lanePhasers(parallelism, steps);
+            // all the phasers of a tiered set share the phase and the termination
+            this.phaser = phasers[0];
+        }
+
+        @Override
+        public void run()
+        {
+            synchronized (this)
+            {
+                running++;
+            }
+            try
+            {
+                // a worker starting after a failure finds the phaser terminated and leaves the memory untouched
+                int phase = phaser.getPhase();
+                while (phase >= 0)
+                {
+                    int lane;
+                    while ((lane = claims.getAndIncrement(phase)) < parallelism)
+                    {
+                        fillSegment(phase / ARGON2_SYNC_POINTS, lane, phase % ARGON2_SYNC_POINTS, blockMemory);
+                        phasers[lane / MAX_PHASER_PARTIES].arrive();
+                    }
+                    phase = phaser.awaitAdvanceInterruptibly(phase);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+            catch (RuntimeException | Error e) // NOSONAR
+            {
+                fail(e);
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    running--;
+                    notifyAll();
+                }
+            }
+        }
+
+        void await()
+        {
+            try
+            {
+                int phase = phaser.getPhase();
+                while (phase >= 0)
+                {
+                    phase = phaser.awaitAdvanceInterruptibly(phase);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                phaser.forceTermination();
+                awaitWorkers();
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Argon2 computation has been interrupted", e);
+            }
+
+            Throwable cause = failure.get();
+            if (cause != null)
+            {
+                awaitWorkers();
+                throw new IllegalStateException("Argon2 computation failed", cause);
+            }
+        }
+
+        /**
+         * After a failure the other workers stop at the end of their segment:
+         * waits for them, so that the memory can be wiped.
+         */
+        private synchronized void awaitWorkers()
+        {
+            boolean interrupted = false;
+            while (running > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void fail(Throwable cause)
+        {
+            failure.compareAndSet(null, cause);
+            phaser.forceTermination();
+        }
+    }
 }
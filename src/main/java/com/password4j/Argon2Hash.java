@@ -0,0 +1,378 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Argon2;
+
+/**
+ * Reusable view over an Argon2 hash in PHC string format:
+ * <pre>
+ *     $argon2{d|i|id}$v={version}$m={memory},t={iterations},p={parallelism}${salt}${digest}
+ * </pre>
+ * The hash is read in a single pass, directly from the {@code byte[]} or the {@link CharSequence}:
+ * the view only stores the numeric parameters and the boundaries of the Base64 segments,
+ * that are decoded on demand into buffers provided by the caller.
+ * <p>
+ * The view keeps a reference to the parsed hash until {@link #reset()} is called.
+ * It is not thread-safe.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+final class Argon2Hash
+{
+
+    private static final int PREFIX_LENGTH = "$argon2".length();
+
+    private byte[] bytes;
+
+    private CharSequence chars;
+
+    private int length;
+
+    private Argon2 type;
+
+    private int version;
+
+    private int memory;
+
+    private int iterations;
+
+    private int parallelism;
+
+    private int saltFrom;
+
+    private int saltTo;
+
+    private int digestFrom;
+
+    private int digestTo;
+
+    // result of the last call to number(int)
+    private int value;
+
+    /**
+     * Parses the hash.
+     *
+     * @param hash the hash as bytes array
+     * @return {@code true} if the hash is a valid PHC string, {@code false} otherwise
+     */
+    boolean parse(byte[] hash)
+    {
+        this.bytes = hash;
+        this.chars = null;
+        this.length = hash.length;
+        return parse();
+    }
+
+    /**
+     * Parses the hash.
+     *
+     * @param hash the hash
+     * @return {@code true} if the hash is a valid PHC string, {@code false} otherwise
+     */
+    boolean parse(CharSequence hash)
+    {
+        this.bytes = null;
+        this.chars = hash;
+        this.length = hash.length();
+        return parse();
+    }
+
+    /**
+     * @param hash a hash as bytes array
+     * @return {@code true} if this view holds the result of parsing the same hash
+     */
+    boolean isParsed(byte[] hash)
+    {
+        if (type == null || hash.length != length)
+        {
+            return false;
+        }
+        if (hash == bytes)
+        {
+            return true;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if ((hash[i] & 0xff) != at(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the reference to the parsed hash.
+     */
+    void reset()
+    {
+        bytes = null;
+        chars = null;
+        length = 0;
+        type = null;
+    }
+
+    Argon2 getType()
+    {
+        return type;
+    }
+
+    int getVersion()
+    {
+        return version;
+    }
+
+    int getMemory()
+    {
+        return memory;
+    }
+
+    int getIterations()
+    {
+        return iterations;
+    }
+
+    int getParallelism()
+    {
+        return parallelism;
+    }
+
+    int getSaltLength()
+    {
+        return decodedLength(saltFrom, saltTo);
+    }
+
+    int getDigestLength()
+    {
+        return decodedLength(digestFrom, digestTo);
+    }
+
+    /**
+     * Decodes the salt.
+     *
+     * @param dst    the destination buffer
+     * @param offset the position in the buffer of the first byte
+     * @return the number of bytes written
+     */
+    int decodeSalt(byte[] dst, int offset)
+    {
+        return decode(saltFrom, saltTo, dst, offset);
+    }
+
+    /**
+     * Decodes the digest.
+     *
+     * @param dst    the destination buffer
+     * @param offset the position in the buffer of the first byte
+     * @return the number of bytes written
+     */
+    int decodeDigest(byte[] dst, int offset)
+    {
+        return decode(digestFrom, digestTo, dst, offset);
+    }
+
+    private boolean parse()
+    {
+        type = null;
+        if (length <= PREFIX_LENGTH || !startsWith("$argon2", 0))
+        {
+            return false;
+        }
+
+        int i = PREFIX_LENGTH;
+        Argon2 parsedType;
+        if (lower(i) == 'i' && lower(i + 1) == 'd')
+        {
+            parsedType = Argon2.ID;
+            i += 2;
+        }
+        else if (lower(i) == 'i')
+        {
+            parsedType = Argon2.I;
+            i++;
+        }
+        else if (lower(i) == 'd')
+        {
+            parsedType = Argon2.D;
+            i++;
+        }
+        else
+        {
+            return false;
+        }
+
+        if (!startsWith("$v=", i) || (i = number(i + 3)) < 0)
+        {
+            return false;
+        }
+        version = value;
+
+        if (!startsWith("$m=", i) || (i = number(i + 3)) < 0)
+        {
+            return false;
+        }
+        memory = value;
+
+        if (!startsWith(",t=", i) || (i = number(i + 3)) < 0)
+        {
+            return false;
+        }
+        iterations = value;
+
+        if (!startsWith(",p=", i) || (i = number(i + 3)) < 0)
+        {
+            return false;
+        }
+        parallelism = value;
+
+        if (i >= length || at(i) != '$')
+        {
+            return false;
+        }
+        saltFrom = i + 1;
+        saltTo = segment(saltFrom);
+        if (saltTo < 0 || (i = skipPadding(saltTo)) >= length || at(i) != '$')
+        {
+            return false;
+        }
+        digestFrom = i + 1;
+        digestTo = segment(digestFrom);
+        if (digestTo <= digestFrom || skipPadding(digestTo) != length)
+        {
+            return false;
+        }
+
+        type = parsedType;
+        return true;
+    }
+
+    /**
+     * Reads a non-empty sequence of decimal digits into {@link #value}.
+     *
+     * @return the index after the last digit or -1
+     */
+    private int number(int from)
+    {
+        int result = 0;
+        int i = from;
+        while (i < length)
+        {
+            int digit = at(i) - '0';
+            if (digit < 0 || digit > 9)
+            {
+                break;
+            }
+            if (result > (Integer.MAX_VALUE - digit) / 10)
+            {
+                return -1;
+            }
+            result = result * 10 + digit;
+            i++;
+        }
+        value = result;
+        return i == from ? -1 : i;
+    }
+
+    /**
+     * Reads a sequence of Base64 characters.
+     *
+     * @return the index after the last character or -1 if the sequence cannot be decoded
+     */
+    private int segment(int from)
+    {
+        int i = from;
+        while (i < length && Utils.fromBase64(at(i)) >= 0)
+        {
+            i++;
+        }
+        return (i - from) % 4 == 1 ? -1 : i;
+    }
+
+    private int skipPadding(int from)
+    {
+        int i = from;
+        while (i < length && i - from < 2 && at(i) == '=')
+        {
+            i++;
+        }
+        return i;
+    }
+
+    private static int decodedLength(int from, int to)
+    {
+        return (to - from) * 3 / 4;
+    }
+
+    private int decode(int from, int to, byte[] dst, int offset)
+    {
+        int dp = offset;
+        int bits = 0;
+        int count = 0;
+        for (int i = from; i < to; i++)
+        {
+            bits = (bits << 6) | Utils.fromBase64(at(i));
+            count++;
+            if (count == 4)
+            {
+                dst[dp++] = (byte) (bits >> 16);
+                dst[dp++] = (byte) (bits >> 8);
+                dst[dp++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 3)
+        {
+            dst[dp++] = (byte) (bits >> 10);
+            dst[dp++] = (byte) (bits >> 2);
+        }
+        else if (count == 2)
+        {
+            dst[dp++] = (byte) (bits >> 4);
+        }
+        return dp - offset;
+    }
+
+    private boolean startsWith(String prefix, int from)
+    {
+        if (from + prefix.length() > length)
+        {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++)
+        {
+            if (at(from + i) != prefix.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int lower(int i)
+    {
+        return i < length ? Character.toLowerCase(at(i)) : -1;
+    }
+
+    private int at(int i)
+    {
+        return bytes != null ? bytes[i] & 0xff : chars.charAt(i);
+    }
+
+}
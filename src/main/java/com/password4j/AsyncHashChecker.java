@@ -0,0 +1,137 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous version of {@link HashChecker}: the computation is executed by the {@link AsyncPool}
+ * and the calling thread is never blocked.
+ * <p>
+ * The returned {@link CompletableFuture} completes exceptionally with a
+ * {@link java.util.concurrent.RejectedExecutionException} if the pool cannot accept more work.
+ *
+ * @author David Bertoldi
+ * @see HashChecker#async()
+ * @since 1.8.5
+ */
+public class AsyncHashChecker
+{
+    private final HashChecker hashChecker;
+
+    AsyncHashChecker(HashChecker hashChecker)
+    {
+        this.hashChecker = hashChecker;
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#with(HashingFunction)}.
+     *
+     * @param hashingFunction a CHF
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> with(final HashingFunction hashingFunction)
+    {
+        return AsyncPool.submit(() -> hashChecker.with(hashingFunction));
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withPBKDF2()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getPBKDF2Instance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withPBKDF2()
+    {
+        return with(AlgorithmFinder.getPBKDF2Instance());
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withCompressedPBKDF2()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getCompressedPBKDF2Instance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withCompressedPBKDF2()
+    {
+        return with(AlgorithmFinder.getCompressedPBKDF2Instance());
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withBcrypt()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getBcryptInstance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withBcrypt()
+    {
+        return with(AlgorithmFinder.getBcryptInstance());
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withScrypt()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getScryptInstance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withScrypt()
+    {
+        return with(AlgorithmFinder.getScryptInstance());
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withMessageDigest()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getMessageDigestInstance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withMessageDigest()
+    {
+        return with(AlgorithmFinder.getMessageDigestInstance());
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withArgon2()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getArgon2Instance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withArgon2()
+    {
+        return with(AlgorithmFinder.getArgon2Instance());
+    }
+
+    /**
+     * Asynchronous version of {@link HashChecker#withBalloonHashing()}.
+     *
+     * @return a {@link CompletableFuture} completed with true if the hash was produced by the given plain text password; false otherwise
+     * @see AlgorithmFinder#getBalloonHashingInstance()
+     * @since 1.8.5
+     */
+    public CompletableFuture<Boolean> withBalloonHashing()
+    {
+        return with(AlgorithmFinder.getBalloonHashingInstance());
+    }
+
+}
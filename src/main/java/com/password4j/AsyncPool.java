@@ -0,0 +1,177 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide pool dedicated to the asynchronous operations started with
+ * {@link HashBuilder#async()} and {@link HashChecker#async()}.
+ * <p>
+ * It is separated from the {@link WorkerPool}, so that the requests waiting for a thread
+ * never delay the lanes of the computations already in progress.
+ * Unless replaced with {@link #setExecutorService(ExecutorService)}, the pool is made of
+ * {@code global.async.pool.size} daemon threads (defaults to the number of processors)
+ * named after {@code global.async.pool.name} (defaults to {@code password4j-async}),
+ * with a queue of at most {@code global.async.queue.size} requests (defaults to 1024).
+ * <p>
+ * When the queue is full the request is handled according to {@code global.async.rejection}:
+ * <ul>
+ *     <li>{@code abort} (default): the returned {@link CompletableFuture} completes exceptionally
+ *     with a {@link RejectedExecutionException}</li>
+ *     <li>{@code caller_runs}: the request is computed by the calling thread</li>
+ * </ul>
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public final class AsyncPool
+{
+
+    private static final AtomicInteger PENDING = new AtomicInteger();
+
+    private static volatile ExecutorService executorService;
+
+    private static boolean owned;
+
+    private AsyncPool()
+    {
+        //
+    }
+
+    /**
+     * Replaces the {@link ExecutorService} used for asynchronous operations. If the previous one was created by Password4j
+     * it is shut down after the pending operations complete.
+     * <p>
+     * The lifecycle of the given {@link ExecutorService} is owned by the caller.
+     * Passing {@code null} restores the default behaviour.
+     *
+     * @param executorService the {@link ExecutorService} to be used, or {@code null}
+     * @since 1.8.5
+     */
+    public static synchronized void setExecutorService(ExecutorService executorService)
+    {
+        ExecutorService previous = AsyncPool.executorService;
+        if (previous != null && owned)
+        {
+            previous.shutdown();
+        }
+        AsyncPool.executorService = executorService;
+        AsyncPool.owned = false;
+    }
+
+    /**
+     * @return the number of asynchronous operations submitted and not yet completed
+     * @since 1.8.5
+     */
+    public static int getPending()
+    {
+        return PENDING.get();
+    }
+
+    static ExecutorService get()
+    {
+        ExecutorService result = executorService;
+        if (result == null)
+        {
+            synchronized (AsyncPool.class)
+            {
+                result = executorService;
+                if (result == null)
+                {
+                    result = create();
+                    executorService = result;
+                    owned = true;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Executes the task in the pool.
+     *
+     * @param task the task
+     * @param <T>  the type of the result
+     * @return a {@link CompletableFuture} completed with the result of the task, or exceptionally
+     * if the task fails or it is rejected by the pool
+     */
+    static <T> CompletableFuture<T> submit(final Callable<T> task)
+    {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        PENDING.incrementAndGet();
+        try
+        {
+            get().execute(() -> {
+                if (future.isDone())
+                {
+                    // cancelled while waiting in the queue
+                    PENDING.decrementAndGet();
+                    return;
+                }
+
+                T result;
+                try
+                {
+                    result = task.call();
+                }
+                catch (Exception | Error e)
+                {
+                    PENDING.decrementAndGet();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                PENDING.decrementAndGet();
+                future.complete(result);
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            PENDING.decrementAndGet();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static ExecutorService create()
+    {
+        int size = PropertyReader.readInt("global.async.pool.size", Utils.AVAILABLE_PROCESSORS);
+        int queueSize = PropertyReader.readInt("global.async.queue.size", 1024);
+        String name = PropertyReader.readString("global.async.pool.name", "password4j-async");
+        return Utils.createExecutorService(size, queueSize, rejection(PropertyReader.readString("global.async.rejection", "abort")), name);
+    }
+
+    static RejectedExecutionHandler rejection(String policy)
+    {
+        if ("abort".equalsIgnoreCase(policy))
+        {
+            return new ThreadPoolExecutor.AbortPolicy();
+        }
+        else if ("caller_runs".equalsIgnoreCase(policy))
+        {
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+        throw new BadParametersException("`" + policy + "` is not a valid rejection policy");
+    }
+
+}
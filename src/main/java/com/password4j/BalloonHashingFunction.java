@@ -22,12 +22,8 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
 
 /**
  * Class containing the implementation of Balloon hashing function and its parameters.
@@ -38,7 +34,6 @@ import java.util.concurrent.Future;
 public class BalloonHashingFunction extends AbstractHashingFunction
 {
 
-    private static final Map<String, BalloonHashingFunction> INSTANCES = new ConcurrentHashMap<>();
     private static final int DEFAULT_DELTA = 3;
 
     private final String algorithm;
@@ -46,7 +41,6 @@ public class BalloonHashingFunction extends AbstractHashingFunction
     private final int timeCost;
     private final int parallelism;
     private final int delta;
-    private ExecutorService service;
 
     BalloonHashingFunction(String algorithm, int spaceCost, int timeCost, int parallelism, int delta)
     {
@@ -55,27 +49,18 @@ public class BalloonHashingFunction extends AbstractHashingFunction
         this.timeCost = timeCost;
         this.parallelism = parallelism;
         this.delta = delta;
-        if (parallelism > 1)
-        {
-            this.service = Utils.createExecutorService();
-        }
-
     }
 
 
     public static BalloonHashingFunction getInstance(String algorithm, int spaceCost, int timeCost, int parallelism, int delta)
     {
-        String key = getUID(algorithm, spaceCost, timeCost, parallelism, delta);
-        if (INSTANCES.containsKey(key))
-        {
-            return INSTANCES.get(key);
-        }
-        else
+        InstanceRegistry.Key key = InstanceRegistry.key(BalloonHashingFunction.class, (long) spaceCost << 32 | timeCost & 0xFFFFFFFFL, (long) parallelism << 32 | delta & 0xFFFFFFFFL, 0, algorithm);
+        BalloonHashingFunction function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            BalloonHashingFunction function = new BalloonHashingFunction(algorithm, spaceCost, timeCost, parallelism, delta);
-            INSTANCES.put(key, function);
-            return function;
+            function = InstanceRegistry.putIfAbsent(key, new BalloonHashingFunction(algorithm, spaceCost, timeCost, parallelism, delta));
         }
+        return function;
     }
 
     public static BalloonHashingFunction getInstance(String algorithm, int spaceCost, int timeCost, int parallelism)
@@ -119,68 +104,108 @@ public class BalloonHashingFunction extends AbstractHashingFunction
 
     protected Hash internalHash(byte[] plainTextPassword, byte[] salt)
     {
+        MessageDigest messageDigest = getMessageDigest();
+        int digestLength = messageDigest.getDigestLength();
+        release(messageDigest);
 
+        long reserved = MemoryBudget.acquire((long) spaceCost * Math.max(parallelism, 1) * digestLength);
+        try
+        {
+            return balloonHash(plainTextPassword, salt);
+        }
+        finally
+        {
+            MemoryBudget.release(reserved);
+        }
+    }
+
+    private Hash balloonHash(byte[] plainTextPassword, byte[] salt)
+    {
         byte[] output;
 
         if (parallelism == 1)
         {
             byte[] parallelSalt = Utils.append(salt, Utils.longToLittleEndian((1)));
             MessageDigest messageDigest = getMessageDigest();
-            output = balloon(messageDigest, plainTextPassword, parallelSalt);
-            output = hashFunc(messageDigest, plainTextPassword, salt, output);
+            try
+            {
+                output = balloon(messageDigest, plainTextPassword, parallelSalt);
+                output = hashFunc(messageDigest, plainTextPassword, salt, output);
+            }
+            finally
+            {
+                release(messageDigest);
+            }
         }
         else if (parallelism > 1)
         {
 
-            List<Future<?>> futures = new ArrayList<>();
+            List<Callable<byte[]>> lanes = new ArrayList<>(parallelism);
 
             for (int i = 0; i < parallelism; i++)
             {
                 byte[] parallelSalt = Utils.append(salt, Utils.longToLittleEndian((i + 1)));
-                Future<byte[]> future = service.submit(() -> balloon(getMessageDigest(), plainTextPassword, parallelSalt));
-
-                futures.add(future);
+                lanes.add(() -> {
+                    MessageDigest messageDigest = getMessageDigest();
+                    try
+                    {
+                        return balloon(messageDigest, plainTextPassword, parallelSalt);
+                    }
+                    finally
+                    {
+                        release(messageDigest);
+                    }
+                });
             }
 
-            MessageDigest messageDigest = getMessageDigest();
-            output = new byte[messageDigest.getDigestLength()];
+            List<byte[]> results = WorkerPool.invokeAll(lanes);
 
-            try
+            output = results.get(0);
+            for (int f = 1; f < results.size(); f++)
             {
-                byte[] tmp;
-                output = (byte[]) futures.get(0).get();
-                for (int f = 1; f < futures.size(); f++)
+                byte[] tmp = results.get(f);
+
+                for (int i = 0; i < output.length; i++)
                 {
-                    tmp = ((byte[]) futures.get(f).get());
+                    output[i] ^= tmp[i];
+                }
 
-                    for (int i = 0; i < output.length; i++)
-                    {
-                        output[i] ^= tmp[i];
-                    }
+            }
 
-                }
+            MessageDigest messageDigest = getMessageDigest();
+            try
+            {
+                output = hashFunc(messageDigest, plainTextPassword, salt, output);
             }
-            catch (InterruptedException | ExecutionException e)
+            finally
             {
-                Thread.currentThread().interrupt();
+                release(messageDigest);
             }
-
-
-            output = hashFunc(messageDigest, plainTextPassword, salt, output);
         }
         else
         {
-            output = balloon(getMessageDigest(), plainTextPassword, salt);
+            MessageDigest messageDigest = getMessageDigest();
+            try
+            {
+                output = balloon(messageDigest, plainTextPassword, salt);
+            }
+            finally
+            {
+                release(messageDigest);
+            }
         }
 
         return new Hash(this, Utils.toHex(output), output, salt);
     }
 
+    /**
+     * @return a digest kept by {@link Recycler}, to be given back with {@link #release(MessageDigest)}
+     */
     protected MessageDigest getMessageDigest()
     {
         try
         {
-            return MessageDigest.getInstance(algorithm);
+            return Recycler.acquireDigest(algorithm);
         }
         catch (NoSuchAlgorithmException nsae)
         {
@@ -188,6 +213,11 @@ public class BalloonHashingFunction extends AbstractHashingFunction
         }
     }
 
+    void release(MessageDigest messageDigest)
+    {
+        Recycler.releaseDigest(algorithm, messageDigest);
+    }
+
     private byte[] balloon(MessageDigest messageDigest, byte[] plainTextPassword, byte[] salt)
     {
         List<byte[]> buffer = new ArrayList<>();
@@ -0,0 +1,325 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builder class that verifies many (plain text password, hash) pairs with the same {@link HashingFunction}.
+ * <p>
+ * The pairs are checked concurrently by the calling thread and by the workers of the {@link WorkerPool}.
+ * At most {@code global.batch.in.flight} pairs (defaults to the number of processors) are checked at the same time,
+ * so that a large batch does not monopolize the shared pool; the limit can be changed per batch
+ * with {@link #withInFlight(int)}.
+ * <p>
+ * Each worker checks the pairs one after the other, so the per-thread state of the algorithms
+ * (e.g. Argon2 working memory leased from the arena) is reused across the items of the batch.
+ * With {@link BcryptFunction} each worker checks two pairs at a time with {@link BcryptFunction#checkAll(byte[][], byte[][])}.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public class BatchChecker
+{
+    private static final int DEFAULT_IN_FLIGHT = PropertyReader.readInt("global.batch.in.flight", Utils.AVAILABLE_PROCESSORS);
+
+    private final byte[][] plainTextPasswords;
+
+    private final byte[][] hashes;
+
+    private CharSequence pepper;
+
+    private int inFlight = DEFAULT_IN_FLIGHT;
+
+    /**
+     * @param pairs the plain text passwords, each one associated to its hash
+     * @since 1.8.5
+     */
+    BatchChecker(Collection<? extends Map.Entry<? extends CharSequence, String>> pairs)
+    {
+        this.plainTextPasswords = new byte[pairs.size()][];
+        this.hashes = new byte[pairs.size()][];
+        int i = 0;
+        for (Map.Entry<? extends CharSequence, String> pair : pairs)
+        {
+            if (pair == null || pair.getValue() == null)
+            {
+                throw new BadParametersException("Hash cannot be null");
+            }
+            plainTextPasswords[i] = pair.getKey() != null ? Utils.fromCharSequenceToBytes(pair.getKey()) : null;
+            hashes[i] = Utils.fromCharSequenceToBytes(pair.getValue());
+            i++;
+        }
+    }
+
+    /**
+     * Concatenates the provided string with each plain text password.
+     * The produced sequence (in the form {@code pepper+password}) is processed by the algorithm.
+     *
+     * @param pepper cryptographic pepper
+     * @return this builder
+     * @since 1.8.5
+     */
+    public BatchChecker addPepper(CharSequence pepper)
+    {
+        this.pepper = pepper;
+        return this;
+    }
+
+    /**
+     * Concatenates the pepper configured in your `psw4j.properties` file with each plain text password.
+     * The produced sequence (in the form {@code pepper+password}) is processed by the algorithm.
+     *
+     * @return this builder
+     * @see PepperGenerator#get()
+     * @since 1.8.5
+     */
+    public BatchChecker addPepper()
+    {
+        this.pepper = PepperGenerator.get();
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pairs checked at the same time.
+     *
+     * @param inFlight the maximum number of concurrent checks
+     * @return this builder
+     * @throws BadParametersException if the limit is less than 1
+     * @since 1.8.5
+     */
+    public BatchChecker withInFlight(int inFlight)
+    {
+        if (inFlight < 1)
+        {
+            throw new BadParametersException("In-flight limit must be greater than 0");
+        }
+        this.inFlight = inFlight;
+        return this;
+    }
+
+    /**
+     * Checks every pair with a specific implementation of {@link HashingFunction}.
+     * <p>
+     * This method does not read the configurations in the `psw4j.properties` file.
+     *
+     * @param hashingFunction a CHF
+     * @return for each pair, in the same order of the input, true if the hash was produced by
+     * the plain text password; false otherwise.
+     * @since 1.8.5
+     */
+    public List<Boolean> with(final HashingFunction hashingFunction)
+    {
+        final boolean[] results = new boolean[hashes.length];
+        final AtomicInteger next = new AtomicInteger();
+        // bcrypt checks the pairs two at a time, interleaving their computations
+        final int chunk = hashingFunction instanceof BcryptFunction ? BcryptLanes.LANES : 1;
+
+        int workers = Math.min(inFlight, (hashes.length + chunk - 1) / chunk);
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++)
+        {
+            tasks.add(() -> {
+                int from;
+                while ((from = next.getAndAdd(chunk)) < hashes.length)
+                {
+                    if (chunk == 1)
+                    {
+                        results[from] = check(hashingFunction, from);
+                    }
+                    else
+                    {
+                        checkAll((BcryptFunction) hashingFunction, from, Math.min(from + chunk, hashes.length), results);
+                    }
+                }
+                return null;
+            });
+        }
+
+        try
+        {
+            WorkerPool.invokeAll(tasks);
+        }
+        catch (IllegalStateException e)
+        {
+            // makes the other workers stop picking pairs
+            next.set(hashes.length);
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+
+        Boolean[] list = new Boolean[results.length];
+        for (int i = 0; i < results.length; i++)
+        {
+            list[i] = results[i];
+        }
+        return Arrays.asList(list);
+    }
+
+    private boolean check(HashingFunction hashingFunction, int index)
+    {
+        byte[] plainTextPassword = plainTextPasswords[index];
+        if (plainTextPassword == null || plainTextPassword.length == 0)
+        {
+            return false;
+        }
+        return hashingFunction.check(plainTextPassword, hashes[index], null, pepper);
+    }
+
+    private void checkAll(BcryptFunction bcrypt, int from, int to, boolean[] results)
+    {
+        byte[] pepperAsBytes = Utils.fromCharSequenceToBytes(pepper);
+        int count = 0;
+        int[] indexes = new int[to - from];
+        for (int i = from; i < to; i++)
+        {
+            if (plainTextPasswords[i] != null && plainTextPasswords[i].length > 0)
+            {
+                indexes[count++] = i;
+            }
+        }
+
+        byte[][] passwords = new byte[count][];
+        byte[][] hashed = new byte[count][];
+        for (int k = 0; k < count; k++)
+        {
+            passwords[k] = Utils.append(pepperAsBytes, plainTextPasswords[indexes[k]]);
+            hashed[k] = hashes[indexes[k]];
+        }
+
+        boolean[] checked = bcrypt.checkAll(passwords, hashed);
+        for (int k = 0; k < count; k++)
+        {
+            results[indexes[k]] = checked[k];
+        }
+    }
+
+    /**
+     * Checks every pair with {@link PBKDF2Function}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getPBKDF2Instance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withPBKDF2()
+    {
+        return with(AlgorithmFinder.getPBKDF2Instance());
+    }
+
+    /**
+     * Checks every pair with {@link CompressedPBKDF2Function}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getCompressedPBKDF2Instance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withCompressedPBKDF2()
+    {
+        return with(AlgorithmFinder.getCompressedPBKDF2Instance());
+    }
+
+    /**
+     * Checks every pair with {@link ScryptFunction}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getScryptInstance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withScrypt()
+    {
+        return with(AlgorithmFinder.getScryptInstance());
+    }
+
+    /**
+     * Checks every pair with {@link BcryptFunction}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getBcryptInstance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withBcrypt()
+    {
+        return with(AlgorithmFinder.getBcryptInstance());
+    }
+
+    /**
+     * Checks every pair with {@link MessageDigestFunction}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getMessageDigestInstance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withMessageDigest()
+    {
+        return with(AlgorithmFinder.getMessageDigestInstance());
+    }
+
+    /**
+     * Checks every pair with {@link Argon2Function}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getArgon2Instance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withArgon2()
+    {
+        return with(AlgorithmFinder.getArgon2Instance());
+    }
+
+    /**
+     * Checks every pair with {@link BalloonHashingFunction}.
+     * <p>
+     * This method reads the configurations in the `psw4j.properties` file. If no configuration is found,
+     * then the default parameters are used.
+     *
+     * @return the results, in the same order of the input
+     * @see AlgorithmFinder#getBalloonHashingInstance()
+     * @since 1.8.5
+     */
+    public List<Boolean> withBalloonHashing()
+    {
+        return with(AlgorithmFinder.getBalloonHashingInstance());
+    }
+
+}
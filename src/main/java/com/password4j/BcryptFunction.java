@@ -21,8 +21,6 @@ import com.password4j.types.Bcrypt;
 import java.security.MessageDigest;
 import java.util.Arrays;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 
 /**
@@ -35,17 +33,15 @@ import java.util.concurrent.ConcurrentMap;
 public class BcryptFunction extends AbstractHashingFunction
 {
 
-    private static final ConcurrentMap<String, BcryptFunction> INSTANCES = new ConcurrentHashMap<>();
-
     private static final int BCRYPT_SALT_LEN = 16;
 
     private static final int BLOWFISH_NUM_ROUNDS = 16;
 
-    private static final int[] P_ORIG = { //
+    static final int[] P_ORIG = { //
             0x243f6a88, 0x85a308d3, 0x13198a2e, 0x03707344, 0xa4093822, 0x299f31d0, 0x082efa98, 0xec4e6c89, 0x452821e6,
             0x38d01377, 0xbe5466cf, 0x34e90c6c, 0xc0ac29b7, 0xc97c50dd, 0x3f84d5b5, 0xb5470917, 0x9216d5d9, 0x8979fb1b};
 
-    private static final int[] S_ORIG = { //
+    static final int[] S_ORIG = { //
             0xd1310ba6, 0x98dfb5ac, 0x2ffd72db, 0xd01adfb7, 0xb8e1afed, 0x6a267e96, 0xba7c9045, 0xf12c7f99, 0x24a19947,
             0xb3916cf7, 0x0801f2e2, 0x858efc16, 0x636920d8, 0x71574e69, 0xa458fea3, 0xf4933d7e, 0x0d95748f, 0x728eb658,
             0x718bcd58, 0x82154aee, 0x7b54a41d, 0xc25a59b5, 0x9c30d539, 0x2af26013, 0xc5d1b023, 0x286085f0, 0xca417918,
@@ -161,7 +157,7 @@ public class BcryptFunction extends AbstractHashingFunction
             0x85cbfe4e, 0x8ae88dd8, 0x7aaaf9b0, 0x4cf9aa7e, 0x1948c25c, 0x02fb8a8c, 0x01c36ae4, 0xd6ebe1f9, 0x90d4f869,
             0xa65cdea0, 0x3f09252d, 0xc208e69f, 0xb74e6132, 0xce77e25b, 0x578fdfe3, 0x3ac372e6};
 
-    private static final int[] BF_CRYPT_CIPHERTEXT = {0x4f727068, 0x65616e42, 0x65686f6c, 0x64657253, 0x63727944, 0x6f756274};
+    static final int[] BF_CRYPT_CIPHERTEXT = {0x4f727068, 0x65616e42, 0x65686f6c, 0x64657253, 0x63727944, 0x6f756274};
 
     private static final char[] BASE_64_CODE = { //
             '.', '/', 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q', 'R', 'S', 'T', 'U',
@@ -175,6 +171,26 @@ public class BcryptFunction extends AbstractHashingFunction
             27, -1, -1, -1, -1, -1, -1, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45, 46, 47, 48, 49,
             50, 51, 52, 53, -1, -1, -1, -1, -1};
 
+    private static final boolean INTERLEAVE = PropertyReader.readBoolean("hash.bcrypt.interleave", true);
+
+    private static final Recycler<BcryptLanes> LANES = new Recycler<BcryptLanes>()
+    {
+        @Override
+        protected BcryptLanes create()
+        {
+            return new BcryptLanes();
+        }
+    };
+
+    private static final Recycler<BlowfishState> STATE = new Recycler<BlowfishState>()
+    {
+        @Override
+        protected BlowfishState create()
+        {
+            return new BlowfishState();
+        }
+    };
+
     private int logRounds;
 
     private Bcrypt type;
@@ -209,17 +225,13 @@ public class BcryptFunction extends AbstractHashingFunction
 
     public static BcryptFunction getInstance(Bcrypt type, int logRounds)
     {
-        String uid = getUID(type, logRounds);
-        if (INSTANCES.containsKey(uid))
-        {
-            return INSTANCES.get(uid);
-        }
-        else
+        InstanceRegistry.Key key = InstanceRegistry.key(BcryptFunction.class, 0, type.ordinal(), logRounds, null);
+        BcryptFunction function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            BcryptFunction function = new BcryptFunction(type, logRounds);
-            INSTANCES.put(uid, function);
-            return function;
+            function = InstanceRegistry.putIfAbsent(key, new BcryptFunction(type, logRounds));
         }
+        return function;
     }
 
     public static BcryptFunction getInstanceFromHash(String hashed)
@@ -228,16 +240,14 @@ public class BcryptFunction extends AbstractHashingFunction
 
         if (hashed.charAt(2) == '$')
         {
-            int rounds = Integer.parseInt(hashed.substring(3, 5));
-            return getInstance(rounds);
+            return getInstance(readRounds(hashed, 3));
         }
         else
         {
             char minor = hashed.charAt(2);
             if (isNotValidMinor(minor) || hashed.charAt(3) != '$')
                 throw new BadParametersException("Invalid salt revision");
-            int rounds = Integer.parseInt(hashed.substring(4, 6));
-            return getInstance(Bcrypt.valueOf(minor), rounds);
+            return getInstance(Bcrypt.valueOf(minor), readRounds(hashed, 4));
         }
     }
 
@@ -264,39 +274,68 @@ public class BcryptFunction extends AbstractHashingFunction
      */
     protected static void encodeBase64(byte[] toBeEncoded, int length, StringBuilder sb)
     {
-        int off = 0;
-        int c1;
-        int c2;
-
         if (length <= 0 || length > toBeEncoded.length)
         {
             throw new BadParametersException("Invalid length");
         }
 
-        while (off < length)
+        char[] encoded = new char[encodedLength(length)];
+        encodeBase64(toBeEncoded, 0, length, encoded, 0);
+        sb.append(encoded);
+    }
+
+    /**
+     * Encode a portion of a byte array using bcrypt's base64 encoding scheme,
+     * writing the result directly into the given buffer.
+     *
+     * @param src    the byte array to encode
+     * @param off    the position of the first byte to encode
+     * @param length the number of bytes to encode
+     * @param dst    the destination buffer, with at least {@code encodedLength(length)} free positions
+     * @param dstOff the position in the buffer of the first character
+     * @return the number of characters written
+     * @since 1.8.5
+     */
+    static int encodeBase64(byte[] src, int off, int length, char[] dst, int dstOff)
+    {
+        int sp = off;
+        int dp = dstOff;
+        int end = off + length;
+        int groups = off + length / 3 * 3;
+        while (sp < groups)
+        {
+            int bits = (src[sp++] & 0xff) << 16 | (src[sp++] & 0xff) << 8 | (src[sp++] & 0xff);
+            dst[dp++] = BASE_64_CODE[(bits >>> 18) & 0x3f];
+            dst[dp++] = BASE_64_CODE[(bits >>> 12) & 0x3f];
+            dst[dp++] = BASE_64_CODE[(bits >>> 6) & 0x3f];
+            dst[dp++] = BASE_64_CODE[bits & 0x3f];
+        }
+        if (sp < end)
         {
-            c1 = toBeEncoded[off++] & 0xff;
-            sb.append(BASE_64_CODE[(c1 >> 2) & 0x3f]);
-            c1 = (c1 & 0x03) << 4;
-            if (off >= length)
+            int b0 = src[sp++] & 0xff;
+            dst[dp++] = BASE_64_CODE[b0 >>> 2];
+            if (sp == end)
             {
-                sb.append(BASE_64_CODE[c1 & 0x3f]);
-                return;
+                dst[dp++] = BASE_64_CODE[(b0 << 4) & 0x3f];
             }
-            c2 = toBeEncoded[off++] & 0xff;
-            c1 |= (c2 >> 4) & 0x0f;
-            sb.append(BASE_64_CODE[c1 & 0x3f]);
-            c1 = (c2 & 0x0f) << 2;
-            if (off >= length)
+            else
             {
-                sb.append(BASE_64_CODE[c1 & 0x3f]);
-                return;
+                int b1 = src[sp] & 0xff;
+                dst[dp++] = BASE_64_CODE[(b0 << 4) & 0x3f | b1 >>> 4];
+                dst[dp++] = BASE_64_CODE[(b1 << 2) & 0x3f];
             }
-            c2 = toBeEncoded[off++] & 0xff;
-            c1 |= (c2 >> 6) & 0x03;
-            sb.append(BASE_64_CODE[c1 & 0x3f]);
-            sb.append(BASE_64_CODE[c2 & 0x3f]);
         }
+        return dp - dstOff;
+    }
+
+    /**
+     * @param length number of bytes
+     * @return the number of characters needed to encode them, without padding
+     */
+    static int encodedLength(int length)
+    {
+        int n = length % 3;
+        return length / 3 * 4 + (n == 0 ? 0 : n + 1);
     }
 
     /**
@@ -327,65 +366,65 @@ public class BcryptFunction extends AbstractHashingFunction
      */
     protected static byte[] decodeBase64(String str, int maxOLength)
     {
-        StringBuilder rs = new StringBuilder();
-        int off = 0;
-        int strLength = str.length();
-        int oLength = 0;
+        if (maxOLength <= 0)
+            throw new BadParametersException("Invalid maxOLength");
+
+        byte[] decoded = new byte[Math.min(maxOLength, str.length())];
+        int oLength = decodeBase64(str, 0, str.length(), decoded, 0, maxOLength);
+        return oLength == decoded.length ? decoded : Arrays.copyOf(decoded, oLength);
+    }
+
+    /**
+     * Decode a portion of a sequence encoded using bcrypt's base64 scheme,
+     * writing the result directly into the given buffer.
+     * The decoding stops at the first invalid character.
+     *
+     * @param src        the characters to decode
+     * @param off        the position of the first character to decode
+     * @param end        the position after the last character to decode
+     * @param dst        the destination buffer
+     * @param dstOff     the position in the buffer of the first byte
+     * @param maxOLength the maximum number of bytes to decode
+     * @return the number of bytes written
+     * @since 1.8.5
+     */
+    static int decodeBase64(CharSequence src, int off, int end, byte[] dst, int dstOff, int maxOLength)
+    {
+        int sp = off;
+        int dp = dstOff;
+        int dEnd = dstOff + maxOLength;
         byte c1;
         byte c2;
         byte c3;
         byte c4;
-        byte o;
-
-        if (maxOLength <= 0)
-            throw new BadParametersException("Invalid maxOLength");
 
-        while (off < strLength - 1 && oLength < maxOLength)
+        while (sp < end - 1 && dp < dEnd)
         {
-            c1 = char64(str.charAt(off++));
-            c2 = char64(str.charAt(off++));
+            c1 = char64(src.charAt(sp++));
+            c2 = char64(src.charAt(sp++));
             if (c1 == -1 || c2 == -1)
             {
-                return fromStringBuilderToBytes(rs, oLength);
+                break;
             }
-            o = (byte) (c1 << 2);
-            o |= (c2 & 0x30) >> 4;
-            rs.append((char) o);
-            if (++oLength >= maxOLength || off >= strLength)
+            dst[dp++] = (byte) (c1 << 2 | (c2 & 0x30) >> 4);
+            if (dp >= dEnd || sp >= end)
             {
-                return fromStringBuilderToBytes(rs, oLength);
+                break;
             }
-            c3 = char64(str.charAt(off++));
+            c3 = char64(src.charAt(sp++));
             if (c3 == -1)
             {
-                return fromStringBuilderToBytes(rs, oLength);
+                break;
             }
-            o = (byte) ((c2 & 0x0f) << 4);
-            o |= (c3 & 0x3c) >> 2;
-            rs.append((char) o);
-            if (++oLength >= maxOLength || off >= strLength)
+            dst[dp++] = (byte) ((c2 & 0x0f) << 4 | (c3 & 0x3c) >> 2);
+            if (dp >= dEnd || sp >= end)
             {
-                return fromStringBuilderToBytes(rs, oLength);
+                break;
             }
-            c4 = char64(str.charAt(off++));
-            o = (byte) ((c3 & 0x03) << 6);
-            o |= c4;
-            rs.append((char) o);
-            ++oLength;
-        }
-
-        return fromStringBuilderToBytes(rs, oLength);
-
-    }
-
-    private static byte[] fromStringBuilderToBytes(StringBuilder sb, int oLength)
-    {
-        byte[] ret = new byte[oLength];
-        for (int i = 0; i < oLength; i++)
-        {
-            ret[i] = (byte) sb.charAt(i);
+            c4 = char64(src.charAt(sp++));
+            dst[dp++] = (byte) ((c3 & 0x03) << 6 | c4);
         }
-        return ret;
+        return dp - dstOff;
     }
 
     /**
@@ -396,38 +435,73 @@ public class BcryptFunction extends AbstractHashingFunction
      *                   current offset into data
      * @return the next word of material from data
      * @since 0.1.0
+     * @deprecated As of 1.8.5 the two words are always the same, because {@code $2x$} reads the key like
+     * {@code $2a$}, as it always did. {@link #streamToWord(byte[], int[])} should be used instead.
      */
+    @Deprecated
     protected static int[] streamToWords(byte[] data, int[] offPointer, int[] signp)
     {
-        int i;
-        int[] words = {0, 0};
         int off = offPointer[0];
-        int sign = signp[0];
+        int word = streamToWord(data, off);
 
-        for (i = 0; i < 4; i++)
-        {
-            words[0] = (words[0] << 8) | (data[off] & 0xff);
-            words[1] = (words[1] << 8) | (data[off] & 0xff); // sign extension bug
-            if (i > 0)
-                sign |= words[1] & 0x80;
-            off = (off + 1) % data.length;
-        }
-
-        offPointer[0] = off;
-        signp[0] = sign;
-        return words;
+        offPointer[0] = nextWord(data, off);
+        signp[0] |= signOf(word);
+        // both words are read from unsigned bytes
+        return new int[] {word, word};
     }
 
     protected static int streamToWord(byte[] data, int[] offp)
     {
-        int[] signp = {0};
-        return streamToWords(data, offp, signp)[0];
+        int off = offp[0];
+        offp[0] = nextWord(data, off);
+        return streamToWord(data, off);
     }
 
+    /**
+     * @deprecated As of 1.8.5, because {@code $2x$} reads the key like {@code $2a$}, as it always did.
+     * {@link #streamToWord(byte[], int[])} should be used instead.
+     */
+    @Deprecated
     protected static int streamToWordMinorX(byte[] data, int[] offp)
     {
-        int[] signp = {0};
-        return streamToWords(data, offp, signp)[1];
+        return streamToWord(data, offp);
+    }
+
+    /**
+     * Extracts the word of key material made of the 4 bytes starting at {@code off},
+     * wrapping around the end of the data.
+     *
+     * @param data the data to extract the word from
+     * @param off  the current offset into data
+     * @return the word of material
+     * @since 1.8.5
+     */
+    static int streamToWord(byte[] data, int off)
+    {
+        int word = 0;
+        int i = off;
+        for (int k = 0; k < 4; k++)
+        {
+            word = (word << 8) | (data[i] & 0xff);
+            i = i + 1 == data.length ? 0 : i + 1;
+        }
+        return word;
+    }
+
+    /**
+     * @return the offset of the word following the one at {@code off}
+     */
+    static int nextWord(byte[] data, int off)
+    {
+        return (off + 4) % data.length;
+    }
+
+    /**
+     * @return the highest bit of the last three bytes of the word
+     */
+    private static int signOf(int word)
+    {
+        return (word >>> 16 | word >>> 8 | word) & 0x80;
     }
 
     private static boolean isNotValidMinor(char minor)
@@ -463,7 +537,6 @@ public class BcryptFunction extends AbstractHashingFunction
      */
     protected static String generateSalt(String prefix, int logRounds)
     {
-        StringBuilder rs = new StringBuilder();
         byte[] rnd = new byte[BCRYPT_SALT_LEN];
 
         if (!prefix.startsWith("$2") || (prefix.charAt(2) != Bcrypt.A.minor() && prefix.charAt(2) != Bcrypt.Y.minor() && prefix
@@ -478,15 +551,48 @@ public class BcryptFunction extends AbstractHashingFunction
 
         AlgorithmFinder.getSecureRandom().nextBytes(rnd);
 
-        rs.append("$2");
-        rs.append(prefix.charAt(2));
-        rs.append('$');
-        if (logRounds < 10)
-            rs.append('0');
-        rs.append(logRounds);
-        rs.append('$');
-        encodeBase64(rnd, rnd.length, rs);
-        return rs.toString();
+        char[] salt = new char[7 + encodedLength(BCRYPT_SALT_LEN)];
+        int off = writeHeader(prefix.charAt(2), logRounds, salt);
+        encodeBase64(rnd, 0, rnd.length, salt, off);
+        return new String(salt);
+    }
+
+    /**
+     * Writes {@code $2<minor>$<rounds>$} at the beginning of the buffer.
+     * The minor is omitted if it is not a valid revision.
+     *
+     * @return the number of characters written
+     */
+    private static int writeHeader(char minor, int logRounds, char[] dst)
+    {
+        int off = 0;
+        dst[off++] = '$';
+        dst[off++] = '2';
+        if (minor >= Bcrypt.A.minor())
+            dst[off++] = minor;
+        dst[off++] = '$';
+        dst[off++] = (char) ('0' + logRounds / 10);
+        dst[off++] = (char) ('0' + logRounds % 10);
+        dst[off++] = '$';
+        return off;
+    }
+
+    /**
+     * Reads the two digits of the logarithmic rounds.
+     *
+     * @param hashed the hash or the salt
+     * @param off    the position of the first digit
+     * @return the logarithmic rounds
+     */
+    private static int readRounds(CharSequence hashed, int off)
+    {
+        int tens = hashed.charAt(off) - '0';
+        int units = hashed.charAt(off + 1) - '0';
+        if (tens < 0 || tens > 9 || units < 0 || units > 9)
+        {
+            throw new BadParametersException("Invalid salt rounds");
+        }
+        return tens * 10 + units;
     }
 
     static boolean equalsNoEarlyReturn(byte[] a, byte[] b)
@@ -540,57 +646,138 @@ public class BcryptFunction extends AbstractHashingFunction
 
     protected Hash internalHash(byte[] plainTextPasswordAsBytes, String salt)
     {
-        String realSalt;
-        byte[] saltAsBytes;
-        byte[] hashed;
-        char minor = (char) 0;
-        int off;
-        StringBuilder rs = new StringBuilder();
-
-        internalChecks(salt);
+        char minor = readMinor(salt);
+        byte[] saltAsBytes = readSalt(salt, minor);
+        byte[] hashed = cryptRaw(terminate(plainTextPasswordAsBytes, minor), saltAsBytes, logRounds, safety(minor));
+        return toHash(minor, saltAsBytes, hashed);
+    }
 
-        int saltLength = salt.length();
+    /**
+     * Checks many passwords, each one against its hash.
+     * <p>
+     * Unless {@code hash.bcrypt.interleave} is {@code false}, the hashes are computed in pairs
+     * whose Blowfish key schedules are interleaved in the same loop: the latency of each check is roughly
+     * the same of {@link #check(byte[], byte[])}, but two checks complete together.
+     *
+     * @param plainTextPasswords the plain text passwords
+     * @param hashed             the hashes, in the same order of the passwords
+     * @return for each password, true if its hash was produced by it; false otherwise
+     * @throws BadParametersException if the arrays have different lengths or a hash is not valid
+     * @since 1.8.5
+     */
+    public boolean[] checkAll(byte[][] plainTextPasswords, byte[][] hashed)
+    {
+        if (plainTextPasswords.length != hashed.length)
+        {
+            throw new BadParametersException("Each password must have its hash");
+        }
 
-        if (salt.charAt(2) == '$')
-            off = 3;
-        else
+        int n = hashed.length;
+        boolean[] results = new boolean[n];
+        int i = 0;
+        if (INTERLEAVE)
         {
-            minor = salt.charAt(2);
-            if (isNotValidMinor(minor) || salt.charAt(3) != '$')
-                throw new BadParametersException("Invalid salt revision");
-            off = 4;
+            BcryptLanes lanes = LANES.acquire();
+            try
+            {
+                for (; i + 1 < n; i += 2)
+                {
+                    String saltA = Utils.fromBytesToString(hashed[i]);
+                    String saltB = Utils.fromBytesToString(hashed[i + 1]);
+                    char minorA = readMinor(saltA);
+                    char minorB = readMinor(saltB);
+                    byte[] saltAsBytesA = readSalt(saltA, minorA);
+                    byte[] saltAsBytesB = readSalt(saltB, minorB);
+                    checkParameters(saltAsBytesA, logRounds);
+                    checkParameters(saltAsBytesB, logRounds);
+
+                    byte[][] raw = lanes.cryptRaw(terminate(plainTextPasswords[i], minorA), saltAsBytesA, safety(minorA),
+                            terminate(plainTextPasswords[i + 1], minorB), saltAsBytesB, safety(minorB), logRounds);
+
+                    results[i] = equalsNoEarlyReturn(hashed[i], toHash(minorA, saltAsBytesA, raw[0]).getResultAsBytes());
+                    results[i + 1] = equalsNoEarlyReturn(hashed[i + 1], toHash(minorB, saltAsBytesB, raw[1]).getResultAsBytes());
+                }
+            }
+            finally
+            {
+                LANES.release(lanes);
+            }
+        }
+        for (; i < n; i++)
+        {
+            results[i] = check(plainTextPasswords[i], hashed[i]);
         }
+        return results;
+    }
+
+    /**
+     * Validates the revision of the salt.
+     *
+     * @param salt the salt or the hash
+     * @return the minor of the revision or {@code 0} for the original revision {@code $2$}
+     */
+    private static char readMinor(String salt)
+    {
+        internalChecks(salt);
+
+        if (salt.charAt(2) == '$')
+            return (char) 0;
+
+        char minor = salt.charAt(2);
+        if (isNotValidMinor(minor) || salt.charAt(3) != '$')
+            throw new BadParametersException("Invalid salt revision");
+        return minor;
+    }
+
+    private static byte[] readSalt(String salt, char minor)
+    {
+        int off = minor == 0 ? 3 : 4;
 
         // Extract number of rounds
         if (salt.charAt(off + 2) > '$')
             throw new BadParametersException("Missing salt rounds");
 
-        if (off == 4 && saltLength < 29)
+        if (off == 4 && salt.length() < 29)
         {
             throw new BadParametersException("Invalid salt");
         }
 
-        realSalt = salt.substring(off + 3, off + 25);
-        saltAsBytes = decodeBase64(realSalt, BCRYPT_SALT_LEN);
+        byte[] saltAsBytes = new byte[BCRYPT_SALT_LEN];
+        int decoded = decodeBase64(salt, off + 3, off + 25, saltAsBytes, 0, BCRYPT_SALT_LEN);
+        if (decoded != BCRYPT_SALT_LEN)
+            saltAsBytes = Arrays.copyOf(saltAsBytes, decoded);
+        return saltAsBytes;
+    }
 
+    private static byte[] terminate(byte[] plainTextPasswordAsBytes, char minor)
+    {
         if (minor >= Bcrypt.A.minor()) // add null terminator
-            plainTextPasswordAsBytes = Arrays.copyOf(plainTextPasswordAsBytes, plainTextPasswordAsBytes.length + 1);
+            return Arrays.copyOf(plainTextPasswordAsBytes, plainTextPasswordAsBytes.length + 1);
+        return plainTextPasswordAsBytes;
+    }
 
-        hashed = cryptRaw(plainTextPasswordAsBytes, saltAsBytes, logRounds, minor == Bcrypt.X.minor(), minor == Bcrypt.A.minor() ? 0x10000 : 0);
+    private static int safety(char minor)
+    {
+        return minor == Bcrypt.A.minor() ? 0x10000 : 0;
+    }
 
-        rs.append("$2");
-        if (minor >= Bcrypt.A.minor())
-            rs.append(minor);
-        rs.append('$');
-        if (logRounds < 10)
-            rs.append('0');
-        rs.append(logRounds);
-        rs.append('$');
-        encodeBase64(saltAsBytes, saltAsBytes.length, rs);
-        encodeBase64(hashed, BF_CRYPT_CIPHERTEXT.length * 4 - 1, rs);
-        String result = rs.toString();
+    private static void checkParameters(byte[] salt, int logRounds)
+    {
+        if (logRounds < 4 || logRounds > 31)
+            throw new BadParametersException("Bad number of rounds");
+        if (salt.length != BCRYPT_SALT_LEN)
+            throw new BadParametersException("Bad salt length");
+    }
 
-        return new Hash(this, result, hashed, saltAsBytes);
+    private Hash toHash(char minor, byte[] saltAsBytes, byte[] hashed)
+    {
+        int hashedLength = BF_CRYPT_CIPHERTEXT.length * 4 - 1;
+        char[] result = new char[7 + encodedLength(saltAsBytes.length) + encodedLength(hashedLength)];
+        int rp = writeHeader(minor, logRounds, result);
+        rp += encodeBase64(saltAsBytes, 0, saltAsBytes.length, result, rp);
+        rp += encodeBase64(hashed, 0, hashedLength, result, rp);
+
+        return new Hash(this, new String(result, 0, rp), hashed, saltAsBytes);
     }
 
     public int getLogarithmicRounds()
@@ -658,23 +845,42 @@ public class BcryptFunction extends AbstractHashingFunction
      *
      * @param key an array containing the key
      * @since 0.1.0
+     * @deprecated As of 1.8.5 {@code signExtBug} is ignored, because the words of key material are the same
+     * with and without it: {@code $2x$} reads the key like {@code $2a$}, as it always did.
+     * {@link #key(byte[], int[], int[])} should be used instead.
      */
+    @Deprecated
     protected void key(byte[] key, boolean signExtBug, int[] pArray, int[] sBox)
+    {
+        key(key, pArray, sBox);
+    }
+
+    /**
+     * Key the Blowfish cipher
+     *
+     * @param key an array containing the key
+     * @since 1.8.5
+     */
+    protected void key(byte[] key, int[] pArray, int[] sBox)
+    {
+        key(key, pArray, sBox, new int[2]);
+    }
+
+    private void key(byte[] key, int[] pArray, int[] sBox, int[] lr)
     {
         int i;
-        int[] koffp = {0};
-        int[] lr = {0, 0};
+        int koff = 0;
         int pLength = pArray.length;
-        int sLenght = sBox.length;
+        int sLength = sBox.length;
 
         for (i = 0; i < pLength; i++)
         {
-            if (!signExtBug)
-                pArray[i] = pArray[i] ^ streamToWord(key, koffp);
-            else
-                pArray[i] = pArray[i] ^ streamToWordMinorX(key, koffp);
+            pArray[i] = pArray[i] ^ streamToWord(key, koff);
+            koff = nextWord(key, koff);
         }
 
+        lr[0] = 0;
+        lr[1] = 0;
         for (i = 0; i < pLength; i += 2)
         {
             encipher(lr, 0, pArray, sBox);
@@ -682,7 +888,7 @@ public class BcryptFunction extends AbstractHashingFunction
             pArray[i + 1] = lr[1];
         }
 
-        for (i = 0; i < sLenght; i += 2)
+        for (i = 0; i < sLength; i += 2)
         {
             encipher(lr, 0, pArray, sBox);
             sBox[i] = lr[0];
@@ -698,39 +904,63 @@ public class BcryptFunction extends AbstractHashingFunction
      * @param key  password information
      * @see <a href="http://www.openbsd.org/papers/bcrypt-paper.ps">A Future-Adaptable Password Scheme</a>
      * @since 0.1.0
+     * @deprecated As of 1.8.5 {@code signExtBug} is ignored, because the words of key material are the same
+     * with and without it: {@code $2x$} reads the key like {@code $2a$}, as it always did.
+     * {@link #enhancedKeySchedule(byte[], byte[], int, int[], int[])} should be used instead.
      */
+    @Deprecated
     protected void enhancedKeySchedule(byte[] data, byte[] key, boolean signExtBug, int safety, int[] pArray, int[] sBox)
+    {
+        enhancedKeySchedule(data, key, safety, pArray, sBox);
+    }
+
+    /**
+     * Perform the "enhanced key schedule" step described by
+     * Provos and Mazieres in "A Future-Adaptable Password Scheme"
+     *
+     * @param data   salt information
+     * @param key    password information
+     * @param safety {@code 0x10000} to set the safety bit of {@code $2a$}, 0 otherwise
+     * @see <a href="http://www.openbsd.org/papers/bcrypt-paper.ps">A Future-Adaptable Password Scheme</a>
+     * @since 1.8.5
+     */
+    protected void enhancedKeySchedule(byte[] data, byte[] key, int safety, int[] pArray, int[] sBox)
+    {
+        enhancedKeySchedule(data, key, safety, pArray, sBox, new int[2]);
+    }
+
+    private void enhancedKeySchedule(byte[] data, byte[] key, int safety, int[] pArray, int[] sBox, int[] lr)
     {
         int i;
-        int[] koffp = {0};
-        int[] doffp = {0};
-        int[] lr = {0, 0};
+        int koff = 0;
+        int doff = 0;
         int pLength = pArray.length;
         int sLength = sBox.length;
-        int[] signP = {0};
-        int diff = 0;
+        int sign = 0;
 
         for (i = 0; i < pLength; i++)
         {
-            int[] words = streamToWords(key, koffp, signP);
-            diff |= words[0] ^ words[1];
-            pArray[i] = pArray[i] ^ words[signExtBug ? 1 : 0];
+            int word = streamToWord(key, koff);
+            koff = nextWord(key, koff);
+            sign |= signOf(word);
+            pArray[i] = pArray[i] ^ word;
         }
 
-        int sign = signP[0];
-
-        diff |= diff >> 16;
-        diff &= 0xffff;
-        diff += 0xffff;
+        // the words read with and without the sign extension bug never differ,
+        // so the safety bit is set whenever a byte of the key has the high bit set
         sign <<= 9;
-        sign &= ~diff & safety;
+        sign &= ~0xffff & safety;
 
         pArray[0] ^= sign;
 
+        lr[0] = 0;
+        lr[1] = 0;
         for (i = 0; i < pLength; i += 2)
         {
-            lr[0] ^= streamToWord(data, doffp);
-            lr[1] ^= streamToWord(data, doffp);
+            lr[0] ^= streamToWord(data, doff);
+            doff = nextWord(data, doff);
+            lr[1] ^= streamToWord(data, doff);
+            doff = nextWord(data, doff);
             encipher(lr, 0, pArray, sBox);
             pArray[i] = lr[0];
             pArray[i + 1] = lr[1];
@@ -738,8 +968,10 @@ public class BcryptFunction extends AbstractHashingFunction
 
         for (i = 0; i < sLength; i += 2)
         {
-            lr[0] ^= streamToWord(data, doffp);
-            lr[1] ^= streamToWord(data, doffp);
+            lr[0] ^= streamToWord(data, doff);
+            doff = nextWord(data, doff);
+            lr[1] ^= streamToWord(data, doff);
+            doff = nextWord(data, doff);
             encipher(lr, 0, pArray, sBox);
             sBox[i] = lr[0];
             sBox[i + 1] = lr[1];
@@ -756,46 +988,73 @@ public class BcryptFunction extends AbstractHashingFunction
      *                  of rounds of hashing to apply
      * @return an array containing the binary hashed password
      * @since 0.1.0
+     * @deprecated As of 1.8.5 {@code sign} is ignored, because {@code $2x$} reads the key like {@code $2a$},
+     * as it always did. {@link #cryptRaw(byte[], byte[], int, int)} should be used instead.
      */
+    @Deprecated
     protected byte[] cryptRaw(byte[] password, byte[] salt, int logRounds, boolean sign, int safety)
+    {
+        return cryptRaw(password, salt, logRounds, safety);
+    }
+
+    /**
+     * Perform the central password hashing step in the
+     * bcrypt scheme
+     *
+     * @param password  the password to hash
+     * @param salt      the binary salt to hash with the password
+     * @param logRounds the binary logarithm of the number
+     *                  of rounds of hashing to apply
+     * @param safety    {@code 0x10000} to set the safety bit of {@code $2a$}, 0 otherwise
+     * @return an array containing the binary hashed password
+     * @since 1.8.5
+     */
+    protected byte[] cryptRaw(byte[] password, byte[] salt, int logRounds, int safety)
     {
         long rounds;
         int i;
         int j;
-        int[] cdata = BF_CRYPT_CIPHERTEXT.clone();
-        int clen = cdata.length;
+        int clen = BF_CRYPT_CIPHERTEXT.length;
         byte[] ret;
 
-        if (logRounds < 4 || logRounds > 31)
-            throw new BadParametersException("Bad number of rounds");
+        checkParameters(salt, logRounds);
         rounds = 1L << logRounds;
-        if (salt.length != BCRYPT_SALT_LEN)
-            throw new BadParametersException("Bad salt length");
 
-        int[] pArray = P_ORIG.clone();
-        int[] sBox = S_ORIG.clone();
-        enhancedKeySchedule(salt, password, sign, safety, pArray, sBox);
-        for (i = 0; i < rounds; i++)
+        BlowfishState state = STATE.acquire();
+        int[] pArray = state.pArray;
+        int[] sBox = state.sBox;
+        int[] cdata = state.cdata;
+        try
         {
-            key(password, sign, pArray, sBox);
-            key(salt, false, pArray, sBox);
-        }
+            enhancedKeySchedule(salt, password, safety, pArray, sBox, state.lr);
+            for (i = 0; i < rounds; i++)
+            {
+                key(password, pArray, sBox, state.lr);
+                key(salt, pArray, sBox, state.lr);
+            }
 
-        for (i = 0; i < 64; i++)
-        {
-            for (j = 0; j < (clen >> 1); j++)
+            for (i = 0; i < 64; i++)
             {
-                encipher(cdata, j << 1, pArray, sBox);
+                for (j = 0; j < (clen >> 1); j++)
+                {
+                    encipher(cdata, j << 1, pArray, sBox);
+                }
             }
-        }
 
-        ret = new byte[clen * 4];
-        for (i = 0, j = 0; i < clen; i++)
+            ret = new byte[clen * 4];
+            for (i = 0, j = 0; i < clen; i++)
+            {
+                ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
+                ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
+                ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
+                ret[j++] = (byte) (cdata[i] & 0xff);
+            }
+        }
+        finally
         {
-            ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
-            ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
-            ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
-            ret[j++] = (byte) (cdata[i] & 0xff);
+            // leaves no key material behind and gets the state ready for the next hash
+            state.reset();
+            STATE.release(state);
         }
         return ret;
     }
@@ -836,4 +1095,28 @@ public class BcryptFunction extends AbstractHashingFunction
         return equalsNoEarlyReturn(hashed, hash(plainTextPasswordAsBytes, hashed).getResultAsBytes());
     }
 
+    /**
+     * Working state of the Blowfish cipher, reused by all the hashes computed by a thread.
+     * Between two hashes it always holds the initial values.
+     */
+    private static final class BlowfishState
+    {
+        private final int[] pArray = P_ORIG.clone();
+
+        private final int[] sBox = S_ORIG.clone();
+
+        private final int[] cdata = BF_CRYPT_CIPHERTEXT.clone();
+
+        private final int[] lr = new int[2];
+
+        private void reset()
+        {
+            System.arraycopy(P_ORIG, 0, pArray, 0, P_ORIG.length);
+            System.arraycopy(S_ORIG, 0, sBox, 0, S_ORIG.length);
+            System.arraycopy(BF_CRYPT_CIPHERTEXT, 0, cdata, 0, BF_CRYPT_CIPHERTEXT.length);
+            lr[0] = 0;
+            lr[1] = 0;
+        }
+    }
+
 }
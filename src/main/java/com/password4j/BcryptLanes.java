@@ -0,0 +1,232 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+/**
+ * Computes two bcrypt hashes with the same cost in one interleaved loop.
+ * <p>
+ * Each Blowfish encryption depends on the result of the previous one, so a single hash
+ * is a long chain of dependent S-box lookups. Here the rounds of the two lanes alternate
+ * and their halves are kept in local variables: the chains are independent, so the CPU
+ * can overlap their lookups. More than two lanes do not fit in the registers and are slower.
+ * <p>
+ * The Blowfish states are restored from the initial tables after each computation.
+ * Instances are not thread-safe.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+final class BcryptLanes
+{
+
+    static final int LANES = 2;
+
+    private static final int P_LENGTH = 18;
+
+    private static final int S_LENGTH = 1024;
+
+    private final int[] pa = BcryptFunction.P_ORIG.clone();
+
+    private final int[] sa = BcryptFunction.S_ORIG.clone();
+
+    private final int[] pb = BcryptFunction.P_ORIG.clone();
+
+    private final int[] sb = BcryptFunction.S_ORIG.clone();
+
+    private final int[] ca = BcryptFunction.BF_CRYPT_CIPHERTEXT.clone();
+
+    private final int[] cb = BcryptFunction.BF_CRYPT_CIPHERTEXT.clone();
+
+    /**
+     * Computes the raw hashes of two passwords.
+     *
+     * @param keyA      the first password, already terminated if required by its revision
+     * @param saltA     the binary salt of the first password
+     * @param safetyA   the safety bit of the first password
+     * @param keyB      the second password, already terminated if required by its revision
+     * @param saltB     the binary salt of the second password
+     * @param safetyB   the safety bit of the second password
+     * @param logRounds the binary logarithm of the number of rounds
+     * @return the two binary hashes
+     */
+    byte[][] cryptRaw(byte[] keyA, byte[] saltA, int safetyA, byte[] keyB, byte[] saltB, int safetyB, int logRounds)
+    {
+        long rounds = 1L << logRounds;
+        try
+        {
+            xorKey(pa, keyA, safetyA, true);
+            xorKey(pb, keyB, safetyB, true);
+            expand(saltA, saltB);
+            for (long i = 0; i < rounds; i++)
+            {
+                xorKey(pa, keyA, 0, false);
+                xorKey(pb, keyB, 0, false);
+                expand(null, null);
+                xorKey(pa, saltA, 0, false);
+                xorKey(pb, saltB, 0, false);
+                expand(null, null);
+            }
+
+            return new byte[][] {encrypt(ca, pa, sa), encrypt(cb, pb, sb)};
+        }
+        finally
+        {
+            reset();
+        }
+    }
+
+    /**
+     * XORs the P-array with the key material and, in the enhanced key schedule,
+     * with the safety bit of the {@code $2a$} revision.
+     */
+    private static void xorKey(int[] p, byte[] key, int safety, boolean enhanced)
+    {
+        int koff = 0;
+        int sign = 0;
+        for (int i = 0; i < P_LENGTH; i++)
+        {
+            int word = BcryptFunction.streamToWord(key, koff);
+            koff = BcryptFunction.nextWord(key, koff);
+            sign |= (word >>> 16 | word >>> 8 | word) & 0x80;
+            p[i] ^= word;
+        }
+        if (enhanced)
+        {
+            sign <<= 9;
+            p[0] ^= sign & ~0xffff & safety;
+        }
+    }
+
+    /**
+     * Replaces the P-arrays and the S-boxes of both lanes with the output of the cipher,
+     * optionally mixing the data of each lane into the blocks before encrypting them.
+     *
+     * @param da the data of the first lane or {@code null}
+     * @param db the data of the second lane or {@code null}
+     */
+    private void expand(byte[] da, byte[] db)
+    {
+        int[] pa = this.pa;
+        int[] sa = this.sa;
+        int[] pb = this.pb;
+        int[] sb = this.sb;
+        int la = 0;
+        int ra = 0;
+        int lb = 0;
+        int rb = 0;
+        int oa = 0;
+        int ob = 0;
+
+        for (int k = 0; k < P_LENGTH + S_LENGTH; k += 2)
+        {
+            if (da != null)
+            {
+                la ^= BcryptFunction.streamToWord(da, oa);
+                oa = BcryptFunction.nextWord(da, oa);
+                ra ^= BcryptFunction.streamToWord(da, oa);
+                oa = BcryptFunction.nextWord(da, oa);
+                lb ^= BcryptFunction.streamToWord(db, ob);
+                ob = BcryptFunction.nextWord(db, ob);
+                rb ^= BcryptFunction.streamToWord(db, ob);
+                ob = BcryptFunction.nextWord(db, ob);
+            }
+
+            la ^= pa[0];
+            lb ^= pb[0];
+            for (int i = 1; i <= 16; i += 2)
+            {
+                ra ^= feistel(la, sa) ^ pa[i];
+                rb ^= feistel(lb, sb) ^ pb[i];
+                la ^= feistel(ra, sa) ^ pa[i + 1];
+                lb ^= feistel(rb, sb) ^ pb[i + 1];
+            }
+            int t = ra ^ pa[17];
+            ra = la;
+            la = t;
+            t = rb ^ pb[17];
+            rb = lb;
+            lb = t;
+
+            if (k < P_LENGTH)
+            {
+                pa[k] = la;
+                pa[k + 1] = ra;
+                pb[k] = lb;
+                pb[k + 1] = rb;
+            }
+            else
+            {
+                sa[k - P_LENGTH] = la;
+                sa[k - P_LENGTH + 1] = ra;
+                sb[k - P_LENGTH] = lb;
+                sb[k - P_LENGTH + 1] = rb;
+            }
+        }
+    }
+
+    /**
+     * Encrypts the magic ciphertext 64 times with the final state of a lane.
+     */
+    private static byte[] encrypt(int[] cdata, int[] p, int[] s)
+    {
+        for (int i = 0; i < 64; i++)
+        {
+            for (int j = 0; j < cdata.length; j += 2)
+            {
+                int l = cdata[j] ^ p[0];
+                int r = cdata[j + 1];
+                for (int k = 1; k <= 16; k += 2)
+                {
+                    r ^= feistel(l, s) ^ p[k];
+                    l ^= feistel(r, s) ^ p[k + 1];
+                }
+                cdata[j] = r ^ p[17];
+                cdata[j + 1] = l;
+            }
+        }
+
+        byte[] ret = new byte[cdata.length * 4];
+        for (int i = 0, j = 0; i < cdata.length; i++)
+        {
+            ret[j++] = (byte) (cdata[i] >> 24);
+            ret[j++] = (byte) (cdata[i] >> 16);
+            ret[j++] = (byte) (cdata[i] >> 8);
+            ret[j++] = (byte) cdata[i];
+        }
+        return ret;
+    }
+
+    private static int feistel(int x, int[] s)
+    {
+        int y = s[(x >> 24) & 0xff];
+        y += s[0x100 | ((x >> 16) & 0xff)];
+        y ^= s[0x200 | ((x >> 8) & 0xff)];
+        y += s[0x300 | (x & 0xff)];
+        return y;
+    }
+
+    private void reset()
+    {
+        System.arraycopy(BcryptFunction.P_ORIG, 0, pa, 0, P_LENGTH);
+        System.arraycopy(BcryptFunction.S_ORIG, 0, sa, 0, S_LENGTH);
+        System.arraycopy(BcryptFunction.P_ORIG, 0, pb, 0, P_LENGTH);
+        System.arraycopy(BcryptFunction.S_ORIG, 0, sb, 0, S_LENGTH);
+        System.arraycopy(BcryptFunction.BF_CRYPT_CIPHERTEXT, 0, ca, 0, ca.length);
+        System.arraycopy(BcryptFunction.BF_CRYPT_CIPHERTEXT, 0, cb, 0, cb.length);
+    }
+
+}
@@ -0,0 +1,452 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.MemoryBackend;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * Working memory of Argon2, made of 1 KiB blocks of {@value #QWORDS_IN_BLOCK} qwords.
+ * <p>
+ * Blocks stored in the heap ({@link Heap}) are addressed by the array that contains them and by the offset
+ * of their first qword inside that array, so that the compression function can work on them in place.
+ * Blocks stored outside the heap ({@link OffHeap}) are copied in and out through {@link #load(int, long[])}
+ * and {@link #store(int, long[])}.
+ * <p>
+ * Each lane owns a {@link Scratch} area that is reused by the compression
+ * function, so that filling the memory does not allocate.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+abstract class BlockMemory
+{
+
+    static final int QWORDS_IN_BLOCK = 128;
+
+    private final int blocks;
+
+    private final Scratch[] scratches;
+
+    BlockMemory(int blocks, int lanes)
+    {
+        this.blocks = blocks;
+        this.scratches = new Scratch[lanes];
+        for (int i = 0; i < lanes; i++)
+        {
+            scratches[i] = new Scratch();
+        }
+    }
+
+    static BlockMemory allocate(Layout layout, MemoryBackend backend, int blocks, int lanes)
+    {
+        if (backend == MemoryBackend.OFF_HEAP)
+        {
+            return new OffHeap(blocks, lanes, OffHeap.CHUNK_SHIFT);
+        }
+        if (layout == Layout.FLAT)
+        {
+            return new Flat(blocks, lanes, Flat.CHUNK_SHIFT);
+        }
+        return new Matrix(blocks, lanes);
+    }
+
+    /**
+     * Copies a block into the given array.
+     *
+     * @param block       the index of the block
+     * @param destination an array of {@value #QWORDS_IN_BLOCK} qwords
+     */
+    abstract void load(int block, long[] destination);
+
+    /**
+     * Overwrites a block with the content of the given array.
+     *
+     * @param block  the index of the block
+     * @param source an array of {@value #QWORDS_IN_BLOCK} qwords
+     */
+    abstract void store(int block, long[] source);
+
+    /**
+     * @param block the index of the block
+     * @param index the index of the qword inside the block
+     * @return the qword
+     */
+    abstract long qword(int block, int index);
+
+    abstract void wipeBlocks();
+
+    /**
+     * Overwrites the whole memory with zeros.
+     */
+    void wipe()
+    {
+        wipeBlocks();
+        for (Scratch scratch : scratches)
+        {
+            scratch.wipe();
+        }
+    }
+
+    /**
+     * Gives back the resources that are not managed by the garbage collector.
+     * The memory must not be used afterwards.
+     */
+    void free()
+    {
+        // nothing to do for heap memory
+    }
+
+    /**
+     * @param lane the index of the lane
+     * @return the scratch area reserved to the lane
+     */
+    Scratch scratch(int lane)
+    {
+        return scratches[lane];
+    }
+
+    int blocks()
+    {
+        return blocks;
+    }
+
+    enum Layout
+    {
+        /**
+         * One {@code long[]} for each block.
+         */
+        MATRIX,
+
+        /**
+         * Blocks stored contiguously in large {@code long[]} chunks.
+         */
+        FLAT
+    }
+
+    /**
+     * Temporary blocks used by a single lane while filling its segments.
+     */
+    static final class Scratch
+    {
+        final long[] r = new long[QWORDS_IN_BLOCK];
+
+        final long[] z = new long[QWORDS_IN_BLOCK];
+
+        final long[] address = new long[QWORDS_IN_BLOCK];
+
+        final long[] input = new long[QWORDS_IN_BLOCK];
+
+        final long[] zero = new long[QWORDS_IN_BLOCK];
+
+        /**
+         * Copies of the blocks that are not addressable as arrays
+         */
+        final long[] prev = new long[QWORDS_IN_BLOCK];
+
+        final long[] ref = new long[QWORDS_IN_BLOCK];
+
+        final long[] current = new long[QWORDS_IN_BLOCK];
+
+        void wipe()
+        {
+            Arrays.fill(r, 0);
+            Arrays.fill(z, 0);
+            Arrays.fill(address, 0);
+            Arrays.fill(input, 0);
+            Arrays.fill(prev, 0);
+            Arrays.fill(ref, 0);
+            Arrays.fill(current, 0);
+        }
+    }
+
+    abstract static class Heap extends BlockMemory
+    {
+        Heap(int blocks, int lanes)
+        {
+            super(blocks, lanes);
+        }
+
+        /**
+         * @param block the index of the block
+         * @return the array containing the block
+         */
+        abstract long[] array(int block);
+
+        /**
+         * @param block the index of the block
+         * @return the position of the block inside its array
+         */
+        abstract int offset(int block);
+
+        @Override
+        void load(int block, long[] destination)
+        {
+            System.arraycopy(array(block), offset(block), destination, 0, QWORDS_IN_BLOCK);
+        }
+
+        @Override
+        void store(int block, long[] source)
+        {
+            System.arraycopy(source, 0, array(block), offset(block), QWORDS_IN_BLOCK);
+        }
+
+        @Override
+        long qword(int block, int index)
+        {
+            return array(block)[offset(block) + index];
+        }
+    }
+
+    static final class Matrix extends Heap
+    {
+        private final long[][] memory;
+
+        Matrix(int blocks, int lanes)
+        {
+            super(blocks, lanes);
+            this.memory = new long[blocks][QWORDS_IN_BLOCK];
+        }
+
+        @Override
+        long[] array(int block)
+        {
+            return memory[block];
+        }
+
+        @Override
+        int offset(int block)
+        {
+            return 0;
+        }
+
+        @Override
+        void wipeBlocks()
+        {
+            for (long[] block : memory)
+            {
+                Arrays.fill(block, 0);
+            }
+        }
+    }
+
+    static final class Flat extends Heap
+    {
+        /**
+         * Chunks of 2 GiB
+         */
+        static final int CHUNK_SHIFT = 21;
+
+        private final long[][] chunks;
+
+        private final int shift;
+
+        private final int mask;
+
+        Flat(int blocks, int lanes, int shift)
+        {
+            super(blocks, lanes);
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+
+            int chunkCount = ((blocks - 1) >>> shift) + 1;
+            this.chunks = new long[chunkCount][];
+            for (int i = 0; i < chunkCount; i++)
+            {
+                int blocksInChunk = Math.min(blocks - (i << shift), 1 << shift);
+                chunks[i] = new long[blocksInChunk * QWORDS_IN_BLOCK];
+            }
+        }
+
+        @Override
+        long[] array(int block)
+        {
+            return chunks[block >>> shift];
+        }
+
+        @Override
+        int offset(int block)
+        {
+            return (block & mask) * QWORDS_IN_BLOCK;
+        }
+
+        @Override
+        void wipeBlocks()
+        {
+            for (long[] chunk : chunks)
+            {
+                Arrays.fill(chunk, 0);
+            }
+        }
+    }
+
+    static final class OffHeap extends BlockMemory
+    {
+        /**
+         * Chunks of 1 GiB, because a buffer cannot hold more than 2<sup>31</sup>-1 bytes
+         */
+        static final int CHUNK_SHIFT = 20;
+
+        private final ByteBuffer[] buffers;
+
+        private final LongBuffer[] chunks;
+
+        private final int shift;
+
+        private final int mask;
+
+        OffHeap(int blocks, int lanes, int shift)
+        {
+            super(blocks, lanes);
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+
+            int chunkCount = ((blocks - 1) >>> shift) + 1;
+            this.buffers = new ByteBuffer[chunkCount];
+            this.chunks = new LongBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++)
+            {
+                int blocksInChunk = Math.min(blocks - (i << shift), 1 << shift);
+                buffers[i] = ByteBuffer.allocateDirect(blocksInChunk * QWORDS_IN_BLOCK * 8).order(ByteOrder.nativeOrder());
+                chunks[i] = buffers[i].asLongBuffer();
+            }
+        }
+
+        @Override
+        void load(int block, long[] destination)
+        {
+            LongBuffer chunk = chunks[block >>> shift];
+            int offset = (block & mask) * QWORDS_IN_BLOCK;
+            for (int i = 0; i < QWORDS_IN_BLOCK; i++)
+            {
+                destination[i] = chunk.get(offset + i);
+            }
+        }
+
+        @Override
+        void store(int block, long[] source)
+        {
+            LongBuffer chunk = chunks[block >>> shift];
+            int offset = (block & mask) * QWORDS_IN_BLOCK;
+            for (int i = 0; i < QWORDS_IN_BLOCK; i++)
+            {
+                chunk.put(offset + i, source[i]);
+            }
+        }
+
+        @Override
+        long qword(int block, int index)
+        {
+            return chunks[block >>> shift].get((block & mask) * QWORDS_IN_BLOCK + index);
+        }
+
+        @Override
+        void wipeBlocks()
+        {
+            for (LongBuffer chunk : chunks)
+            {
+                for (int i = 0; i < chunk.capacity(); i++)
+                {
+                    chunk.put(i, 0L);
+                }
+            }
+        }
+
+        @Override
+        void free()
+        {
+            for (int i = 0; i < buffers.length; i++)
+            {
+                Cleaner.clean(buffers[i]);
+                buffers[i] = null;
+                chunks[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Releases the native memory of direct buffers without waiting for the garbage collector.
+     * If the runtime does not allow it, the memory is released when the buffer is collected.
+     */
+    static final class Cleaner
+    {
+        private static final Object UNSAFE;
+
+        private static final Method INVOKE_CLEANER;
+
+        static
+        {
+            Object unsafe = null;
+            Method invokeCleaner = null;
+            try
+            {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                unsafe = field.get(null);
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            }
+            catch (Exception | LinkageError e)
+            {
+                // Java 8 or restricted runtime: see clean(ByteBuffer)
+            }
+            UNSAFE = unsafe;
+            INVOKE_CLEANER = invokeCleaner;
+        }
+
+        private Cleaner()
+        {
+            //
+        }
+
+        static void clean(ByteBuffer buffer)
+        {
+            if (buffer == null)
+            {
+                return;
+            }
+
+            try
+            {
+                if (INVOKE_CLEANER != null)
+                {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                }
+                else
+                {
+                    Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                    cleanerMethod.setAccessible(true);
+                    Object cleaner = cleanerMethod.invoke(buffer);
+                    if (cleaner != null)
+                    {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                }
+            }
+            catch (Exception | LinkageError e)
+            {
+                // left to the garbage collector
+            }
+        }
+    }
+}
@@ -20,8 +20,6 @@ package com.password4j;
 import com.password4j.types.Hmac;
 
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -61,8 +59,6 @@ import java.util.concurrent.ConcurrentHashMap;
 public class CompressedPBKDF2Function extends PBKDF2Function
 {
 
-    private static final Map<String, CompressedPBKDF2Function> INSTANCES = new ConcurrentHashMap<>();
-
     private static final char DELIMITER = PropertyReader.readChar("hash.pbkdf2.delimiter", '$');
 
     protected CompressedPBKDF2Function()
@@ -87,17 +83,13 @@ public class CompressedPBKDF2Function extends PBKDF2Function
      */
     public static CompressedPBKDF2Function getInstance(Hmac algorithm, int iterations, int length)
     {
-        String key = getUID(algorithm.name(), iterations, length);
-        if (INSTANCES.containsKey(key))
-        {
-            return INSTANCES.get(key);
-        }
-        else
+        InstanceRegistry.Key key = InstanceRegistry.key(CompressedPBKDF2Function.class, iterations, length, 0, algorithm.name());
+        CompressedPBKDF2Function function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            CompressedPBKDF2Function function = new CompressedPBKDF2Function(algorithm, iterations, length);
-            INSTANCES.put(key, function);
-            return function;
+            function = InstanceRegistry.putIfAbsent(key, new CompressedPBKDF2Function(algorithm, iterations, length));
         }
+        return function;
     }
 
     /**
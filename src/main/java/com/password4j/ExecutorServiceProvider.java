@@ -0,0 +1,44 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Service provider interface used to supply the {@link ExecutorService}
+ * shared by all the parallel hashing functions.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader}: declare the fully qualified
+ * name of the implementation in {@code META-INF/services/com.password4j.ExecutorServiceProvider}.
+ * The first implementation found is used.
+ * <p>
+ * For example, on Java 21 a provider may return {@code Executors.newVirtualThreadPerTaskExecutor()}.
+ * The lifecycle of the returned {@link ExecutorService} is owned by the application.
+ *
+ * @author David Bertoldi
+ * @see WorkerPool
+ * @since 1.8.5
+ */
+public interface ExecutorServiceProvider
+{
+
+    /**
+     * @return the {@link ExecutorService} used to compute lanes in parallel
+     */
+    ExecutorService getExecutorService();
+
+}
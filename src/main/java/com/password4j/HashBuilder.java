@@ -147,6 +147,18 @@ public class HashBuilder
         return this;
     }
 
+    /**
+     * Switches to the asynchronous hashing: the chosen algorithm is executed
+     * by the {@link AsyncPool} instead of the calling thread.
+     *
+     * @return an asynchronous builder that uses the parameters of this builder
+     * @since 1.8.5
+     */
+    public AsyncHashBuilder async()
+    {
+        return new AsyncHashBuilder(this);
+    }
+
     /**
      * Hashes the previously given plain text password
      * with a specific implementation of {@link HashingFunction}.
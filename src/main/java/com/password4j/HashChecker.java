@@ -128,6 +128,18 @@ public class HashChecker
         return new HashUpdater(this, new HashBuilder(plainTextPassword).addPepper(pepper).addSalt(salt));
     }
 
+    /**
+     * Switches to the asynchronous verification: the chosen algorithm is executed
+     * by the {@link AsyncPool} instead of the calling thread.
+     *
+     * @return an asynchronous builder that uses the parameters of this builder
+     * @since 1.8.5
+     */
+    public AsyncHashChecker async()
+    {
+        return new AsyncHashChecker(this);
+    }
+
     /**
      * Check if the previously given hash was produced from the given plain text password
      * with a specific implementation of {@link HashingFunction}.
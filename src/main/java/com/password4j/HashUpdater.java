@@ -407,7 +407,8 @@ public class HashUpdater
      */
     public HashUpdate withArgon2(HashingFunction newHashingFunction)
     {
-        return with(Argon2Function.getInstanceFromHash(hashChecker.getHashed()), newHashingFunction);
+        // the byte[] overload keeps the parsed hash for the verification that follows
+        return with(Argon2Function.getInstanceFromHash(hashChecker.hashed), newHashingFunction);
     }
 
     /**
@@ -0,0 +1,343 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide cache of the singleton instances returned by the {@code getInstance(...)} methods
+ * of the {@link HashingFunction}s.
+ * <p>
+ * An instance is identified by its class and by up to three {@code long}s and one object (e.g. the name of an algorithm)
+ * packing its parameters. Lookups use a mutable key owned by the calling thread, so that retrieving
+ * a cached instance does not allocate.
+ * <p>
+ * The registry keeps at most {@code global.instances.size} instances (defaults to 256) and drops the least recently used.
+ * Cached instances are found without locking. The recency is measured by a clock that ticks only when an instance
+ * is added: a lookup records it on the instance only if it ticked since the last lookup of the same instance, so
+ * that the threads using the same instance do not write to it at every lookup. The least recently used is searched
+ * among all the instances when a new one does not fit, so the order is approximate and each insertion into a full
+ * registry costs time linear in its capacity.
+ * Hits, misses and evictions are counted.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public final class InstanceRegistry
+{
+
+    private static final ConcurrentMap<Key, Entry> INSTANCES = new ConcurrentHashMap<>();
+
+    private static final Object LOCK = new Object();
+
+    private static final Recycler<Key> LOOKUP = new Recycler<Key>()
+    {
+        @Override
+        protected Key create()
+        {
+            return new Key();
+        }
+    };
+
+    private static final Counter HITS = new Counter();
+
+    private static final Counter MISSES = new Counter();
+
+    private static final Counter EVICTIONS = new Counter();
+
+    private static volatile int capacity = PropertyReader.readInt("global.instances.size", 256);
+
+    // advanced while holding LOCK, when an instance is added
+    private static volatile long clock;
+
+    private InstanceRegistry()
+    {
+        //
+    }
+
+    /**
+     * Changes the maximum number of cached instances, dropping the least recently used if needed.
+     *
+     * @param capacity the maximum number of cached instances
+     * @throws BadParametersException if the capacity is negative
+     * @since 1.8.5
+     */
+    public static void setCapacity(int capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new BadParametersException("Capacity cannot be negative");
+        }
+
+        synchronized (LOCK)
+        {
+            InstanceRegistry.capacity = capacity;
+            evict();
+        }
+    }
+
+    /**
+     * @return the number of cached instances
+     * @since 1.8.5
+     */
+    public static int getSize()
+    {
+        return INSTANCES.size();
+    }
+
+    /**
+     * @return the number of lookups that found a cached instance
+     * @since 1.8.5
+     */
+    public static long getHits()
+    {
+        return HITS.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find a cached instance
+     * @since 1.8.5
+     */
+    public static long getMisses()
+    {
+        return MISSES.sum();
+    }
+
+    /**
+     * @return the number of instances dropped to respect the capacity
+     * @since 1.8.5
+     */
+    public static long getEvictions()
+    {
+        return EVICTIONS.sum();
+    }
+
+    /**
+     * Prepares the key of an instance. The returned key belongs to the calling thread
+     * and is valid until the next invocation.
+     *
+     * @param type   the class of the instance
+     * @param first  packed parameters
+     * @param second packed parameters
+     * @param third  packed parameters
+     * @param text   a parameter that cannot be packed in a {@code long}, or {@code null}
+     * @return the key
+     */
+    static Key key(Class<? extends HashingFunction> type, long first, long second, long third, Object text)
+    {
+        return LOOKUP.get().set(type, first, second, third, text);
+    }
+
+    /**
+     * @param key a key obtained with {@link #key(Class, long, long, long, Object)}
+     * @param <T> the type of the instance
+     * @return the cached instance, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends HashingFunction> T get(Key key)
+    {
+        Entry entry = INSTANCES.get(key);
+        if (entry == null)
+        {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        long now = clock;
+        if (entry.used != now)
+        {
+            entry.used = now;
+        }
+        return (T) entry.function;
+    }
+
+    /**
+     * Caches the given instance, unless another thread has cached an instance with the same key in the meanwhile.
+     *
+     * @param key      a key obtained with {@link #key(Class, long, long, long, Object)}
+     * @param function the new instance
+     * @param <T>      the type of the instance
+     * @return the cached instance
+     */
+    @SuppressWarnings("unchecked")
+    static <T extends HashingFunction> T putIfAbsent(Key key, T function)
+    {
+        synchronized (LOCK)
+        {
+            Entry existing = INSTANCES.get(key);
+            if (existing != null)
+            {
+                return (T) existing.function;
+            }
+            if (capacity > 0)
+            {
+                INSTANCES.put(key.copy(), new Entry(function, clock++));
+                evict();
+            }
+            return function;
+        }
+    }
+
+    static void clear()
+    {
+        synchronized (LOCK)
+        {
+            INSTANCES.clear();
+            HITS.reset();
+            MISSES.reset();
+            EVICTIONS.reset();
+        }
+    }
+
+    /**
+     * Drops the least recently used instances until the capacity is respected.
+     * Called while holding {@link #LOCK}.
+     */
+    private static void evict()
+    {
+        while (INSTANCES.size() > capacity)
+        {
+            Key eldest = null;
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<Key, Entry> entry : INSTANCES.entrySet())
+            {
+                long used = entry.getValue().used;
+                if (eldest == null || used < oldest)
+                {
+                    eldest = entry.getKey();
+                    oldest = used;
+                }
+            }
+            if (eldest == null || INSTANCES.remove(eldest) == null)
+            {
+                return;
+            }
+            EVICTIONS.increment();
+        }
+    }
+
+    private static final class Entry
+    {
+        private final HashingFunction function;
+
+        private volatile long used;
+
+        private Entry(HashingFunction function, long used)
+        {
+            this.function = function;
+            this.used = used;
+        }
+    }
+
+    /**
+     * Counter striped across threads, so that concurrent hits do not update the same memory.
+     */
+    private static final class Counter
+    {
+        // one cell every 8 longs, so that cells do not share a cache line
+        private static final int PADDING = 8;
+
+        private static final int STRIPES = Integer.highestOneBit(Math.max(1, Utils.AVAILABLE_PROCESSORS)) << 1;
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+        void increment()
+        {
+            int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+            cells.incrementAndGet(stripe * PADDING);
+        }
+
+        long sum()
+        {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++)
+            {
+                sum += cells.get(i * PADDING);
+            }
+            return sum;
+        }
+
+        void reset()
+        {
+            for (int i = 0; i < STRIPES; i++)
+            {
+                cells.set(i * PADDING, 0);
+            }
+        }
+    }
+
+    static final class Key
+    {
+        private Class<?> type;
+
+        private long first;
+
+        private long second;
+
+        private long third;
+
+        private Object text;
+
+        private int hash;
+
+        Key set(Class<?> type, long first, long second, long third, Object text)
+        {
+            this.type = type;
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.text = text;
+            int h = type.hashCode();
+            h = 31 * h + (int) (first ^ (first >>> 32));
+            h = 31 * h + (int) (second ^ (second >>> 32));
+            h = 31 * h + (int) (third ^ (third >>> 32));
+            this.hash = 31 * h + (text == null ? 0 : text.hashCode());
+            return this;
+        }
+
+        Key copy()
+        {
+            return new Key().set(type, first, second, third, text);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+            {
+                return true;
+            }
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type && first == other.first && second == other.second && third == other.third
+                    && (text == null ? other.text == null : text.equals(other.text));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+}
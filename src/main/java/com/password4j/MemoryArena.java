@@ -0,0 +1,207 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+/**
+ * Bounded and thread-safe arena of reusable working memory.
+ * <p>
+ * Each resource is identified by a {@code long} key describing its shape
+ * (e.g. the number of blocks of an Argon2 matrix). A resource is leased for the
+ * duration of a single computation and must be given back with {@link #release(long, Object)},
+ * where it is wiped before being made available again.
+ * <p>
+ * The arena keeps at most {@code capacity} idle resources, whose total size does not exceed {@code maxBytes}:
+ * when it is full the least recently released resources are dropped. A capacity of {@code 0} disables the reuse.
+ * Dropped resources are passed to {@link #dispose(Object)}.
+ *
+ * @param <T> the type of the resource
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+abstract class MemoryArena<T>
+{
+
+    private final long[] keys;
+
+    private final Object[] resources;
+
+    private final long maxBytes;
+
+    private int idle;
+
+    private long idleBytes;
+
+    MemoryArena(int capacity)
+    {
+        this(capacity, Long.MAX_VALUE);
+    }
+
+    MemoryArena(int capacity, long maxBytes)
+    {
+        if (capacity < 0 || maxBytes < 0)
+        {
+            throw new BadParametersException("Capacity cannot be negative");
+        }
+        this.keys = new long[capacity];
+        this.resources = new Object[capacity];
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Leases a zeroed resource. If no idle resource with the given key is found,
+     * a new one is allocated.
+     *
+     * @param key the shape of the resource
+     * @return a zeroed resource
+     */
+    T lease(long key)
+    {
+        T resource = take(key);
+        if (resource == null)
+        {
+            resource = allocate(key);
+        }
+        return resource;
+    }
+
+    /**
+     * Wipes the given resource and makes it available for further leases.
+     *
+     * @param key      the shape of the resource
+     * @param resource a resource obtained with {@link #lease(long)}
+     */
+    void release(long key, T resource)
+    {
+        if (resource == null)
+        {
+            return;
+        }
+        wipe(resource);
+        put(key, resource);
+    }
+
+    /**
+     * Drops all the idle resources.
+     */
+    synchronized void clear()
+    {
+        for (int i = 0; i < idle; i++)
+        {
+            dispose(resources(i));
+            resources[i] = null;
+        }
+        idle = 0;
+        idleBytes = 0;
+    }
+
+    synchronized int getIdle()
+    {
+        return idle;
+    }
+
+    /**
+     * @return the total size of the idle resources
+     */
+    synchronized long getIdleBytes()
+    {
+        return idleBytes;
+    }
+
+    int getCapacity()
+    {
+        return keys.length;
+    }
+
+    protected abstract T allocate(long key);
+
+    protected abstract void wipe(T resource);
+
+    /**
+     * @param key the shape of a resource
+     * @return the number of bytes retained by a resource with the given shape
+     */
+    protected long sizeOf(long key)
+    {
+        return 0;
+    }
+
+    /**
+     * Called when an idle resource leaves the arena without being leased.
+     *
+     * @param resource a wiped resource
+     */
+    protected void dispose(T resource)
+    {
+        // garbage collected by default
+    }
+
+    @SuppressWarnings("unchecked")
+    private T resources(int index)
+    {
+        return (T) resources[index];
+    }
+
+    private synchronized T take(long key)
+    {
+        // most recently released resources are at the end
+        for (int i = idle - 1; i >= 0; i--)
+        {
+            if (keys[i] == key)
+            {
+                T resource = resources(i);
+                remove(i);
+                return resource;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void put(long key, T resource)
+    {
+        long size = sizeOf(key);
+        if (keys.length == 0 || size > maxBytes)
+        {
+            dispose(resource);
+            return;
+        }
+
+        while (idle == keys.length || idleBytes + size > maxBytes)
+        {
+            T oldest = resources(0);
+            remove(0);
+            dispose(oldest);
+        }
+        keys[idle] = key;
+        resources[idle] = resource;
+        idle++;
+        idleBytes += size;
+    }
+
+    private void remove(int index)
+    {
+        idleBytes -= sizeOf(keys[index]);
+        int moved = idle - index - 1;
+        if (moved > 0)
+        {
+            System.arraycopy(keys, index + 1, keys, index, moved);
+            System.arraycopy(resources, index + 1, resources, index, moved);
+        }
+        idle--;
+        resources[idle] = null;
+    }
+
+}
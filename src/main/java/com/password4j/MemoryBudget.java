@@ -0,0 +1,238 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.MemoryPolicy;
+
+/**
+ * Process-wide budget of working memory shared by the memory-hard functions
+ * ({@link Argon2Function}, {@link ScryptFunction} and {@link BalloonHashingFunction}).
+ * <p>
+ * Before allocating its working memory, each computation reserves it from the budget and gives it back
+ * when the hash is computed. When the budget is exhausted the computation waits, times out or is rejected
+ * depending on the {@link MemoryPolicy}, so that a burst of requests degrades the throughput
+ * instead of exhausting the memory of the JVM.
+ * <p>
+ * The budget is disabled by default. It can be configured with {@code global.memory.budget} (in MiB),
+ * {@code global.memory.policy} ({@code block}, {@code timeout} or {@code reject}) and
+ * {@code global.memory.timeout} (in milliseconds), or with {@link #configure(long, MemoryPolicy, long)}.
+ * <p>
+ * Only the memory in use is accounted: the working memory kept for reuse by idle arenas is not.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public final class MemoryBudget
+{
+
+    private static final Object LOCK = new Object();
+
+    // read without the lock, so that a disabled budget costs nothing
+    private static volatile long budget = PropertyReader.readInt("global.memory.budget", 0) * 1024L * 1024L;
+
+    private static MemoryPolicy policy = PropertyReader.readEnum("global.memory.policy", MemoryPolicy.BLOCK);
+
+    private static long timeout = PropertyReader.readInt("global.memory.timeout", 1000);
+
+    private static long used;
+
+    private static int waiters;
+
+    private MemoryBudget()
+    {
+        //
+    }
+
+    /**
+     * Changes the budget. The computations already running keep their memory.
+     *
+     * @param budget        the maximum number of bytes in use at the same time, 0 to disable the budget
+     * @param policy        the behaviour when the budget is exhausted
+     * @param timeoutMillis the maximum waiting time for {@link MemoryPolicy#TIMEOUT}
+     * @throws BadParametersException if any of the arguments is not valid
+     * @since 1.8.5
+     */
+    public static void configure(long budget, MemoryPolicy policy, long timeoutMillis)
+    {
+        if (budget < 0 || timeoutMillis < 0 || policy == null)
+        {
+            throw new BadParametersException("Invalid memory budget: " + budget + ", " + policy + ", " + timeoutMillis);
+        }
+
+        synchronized (LOCK)
+        {
+            MemoryBudget.budget = budget;
+            MemoryBudget.policy = policy;
+            MemoryBudget.timeout = timeoutMillis;
+            LOCK.notifyAll();
+        }
+    }
+
+    /**
+     * @return the maximum number of bytes in use at the same time, 0 if the budget is disabled
+     * @since 1.8.5
+     */
+    public static long getBudget()
+    {
+        return budget;
+    }
+
+    /**
+     * @return the number of bytes reserved by the running computations
+     * @since 1.8.5
+     */
+    public static long getUsed()
+    {
+        synchronized (LOCK)
+        {
+            return used;
+        }
+    }
+
+    /**
+     * @return the number of computations waiting for memory
+     * @since 1.8.5
+     */
+    public static int getWaiters()
+    {
+        synchronized (LOCK)
+        {
+            return waiters;
+        }
+    }
+
+    /**
+     * Reserves memory from the budget.
+     *
+     * @param bytes the required memory
+     * @return the reserved memory, to be passed to {@link #release(long)}; 0 if the budget is disabled
+     * @throws MemoryBudgetExceededException if the memory cannot be reserved
+     */
+    static long acquire(long bytes)
+    {
+        if (budget == 0)
+        {
+            return 0;
+        }
+        synchronized (LOCK)
+        {
+            if (budget == 0)
+            {
+                return 0;
+            }
+            if (bytes > budget)
+            {
+                throw new MemoryBudgetExceededException("Required memory (" + bytes + " bytes) exceeds the budget (" + budget + " bytes)");
+            }
+
+            if (used + bytes > budget)
+            {
+                if (policy == MemoryPolicy.REJECT)
+                {
+                    throw new MemoryBudgetExceededException("Memory budget exhausted: " + used + " of " + budget + " bytes in use");
+                }
+                await(bytes);
+            }
+
+            used += bytes;
+            return bytes;
+        }
+    }
+
+    /**
+     * Reserves memory from the budget only if it is available right away.
+     *
+     * @param bytes the required memory
+     * @return the reserved memory, to be passed to {@link #release(long)}; 0 if the budget is disabled;
+     * -1 if the memory is not available
+     */
+    static long tryAcquire(long bytes)
+    {
+        if (budget == 0)
+        {
+            return 0;
+        }
+        synchronized (LOCK)
+        {
+            if (budget == 0)
+            {
+                return 0;
+            }
+            if (used + bytes > budget)
+            {
+                return -1;
+            }
+
+            used += bytes;
+            return bytes;
+        }
+    }
+
+    private static void await(long bytes)
+    {
+        long deadline = System.nanoTime() + timeout * 1_000_000L;
+        waiters++;
+        try
+        {
+            while (budget != 0 && used + bytes > budget)
+            {
+                if (policy == MemoryPolicy.TIMEOUT)
+                {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                    {
+                        throw new MemoryBudgetExceededException("Timed out after " + timeout + " ms waiting for " + bytes + " bytes");
+                    }
+                    LOCK.wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+                }
+                else
+                {
+                    LOCK.wait();
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for memory", e);
+        }
+        finally
+        {
+            waiters--;
+        }
+    }
+
+    /**
+     * Gives back memory to the budget.
+     *
+     * @param bytes the memory returned by {@link #acquire(long)}
+     */
+    static void release(long bytes)
+    {
+        if (bytes == 0)
+        {
+            return;
+        }
+
+        synchronized (LOCK)
+        {
+            used -= bytes;
+            LOCK.notifyAll();
+        }
+    }
+
+}
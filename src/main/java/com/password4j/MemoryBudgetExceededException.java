@@ -0,0 +1,44 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+/**
+ * This exception is thrown when a memory-hard function cannot obtain
+ * its working memory from the {@link MemoryBudget}.
+ * <p>
+ * It signals an overload: the same computation may succeed once the
+ * other computations give back their memory.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public class MemoryBudgetExceededException extends RuntimeException
+{
+
+    private static final long serialVersionUID = -3418512049672903785L;
+
+    /**
+     * Constructs the exception.
+     *
+     * @param message the message describing the cause of the exception
+     * @since 1.8.5
+     */
+    public MemoryBudgetExceededException(String message)
+    {
+        super(message);
+    }
+}
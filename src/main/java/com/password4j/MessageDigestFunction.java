@@ -18,9 +18,7 @@ package com.password4j;
 
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -33,7 +31,6 @@ import java.util.concurrent.ConcurrentHashMap;
 public class MessageDigestFunction extends AbstractHashingFunction
 {
     protected static final SaltOption DEFAULT_SALT_OPTION = SaltOption.APPEND;
-    private static final Map<String, MessageDigestFunction> INSTANCES = new ConcurrentHashMap<>();
     private final String algorithm;
 
     private final SaltOption saltOption;
@@ -69,17 +66,13 @@ public class MessageDigestFunction extends AbstractHashingFunction
      */
     public static MessageDigestFunction getInstance(String algorithm, SaltOption saltOption)
     {
-        String key = getUID(algorithm, saltOption);
-        if (INSTANCES.containsKey(key))
+        InstanceRegistry.Key key = InstanceRegistry.key(MessageDigestFunction.class, saltOption.ordinal(), 0, 0, algorithm);
+        MessageDigestFunction function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            return INSTANCES.get(key);
-        }
-        else
-        {
-            MessageDigestFunction function = new MessageDigestFunction(algorithm, saltOption);
-            INSTANCES.put(key, function);
-            return function;
+            function = InstanceRegistry.putIfAbsent(key, new MessageDigestFunction(algorithm, saltOption));
         }
+        return function;
     }
 
     protected static String getUID(String algorithm, SaltOption saltOption)
@@ -120,15 +113,27 @@ public class MessageDigestFunction extends AbstractHashingFunction
     {
         byte[] finalCharSequence = concatenateSalt(plainTextPassword, salt);
 
-        byte[] result = getMessageDigest().digest(finalCharSequence);
+        MessageDigest messageDigest = getMessageDigest();
+        byte[] result;
+        try
+        {
+            result = messageDigest.digest(finalCharSequence);
+        }
+        finally
+        {
+            release(messageDigest);
+        }
         return new Hash(this, Utils.toHex(result), result, salt);
     }
 
+    /**
+     * @return a digest kept by {@link Recycler}, to be given back with {@link #release(MessageDigest)}
+     */
     protected MessageDigest getMessageDigest()
     {
         try
         {
-            return MessageDigest.getInstance(algorithm);
+            return Recycler.acquireDigest(algorithm);
         }
         catch (NoSuchAlgorithmException nsae)
         {
@@ -136,6 +141,11 @@ public class MessageDigestFunction extends AbstractHashingFunction
         }
     }
 
+    void release(MessageDigest messageDigest)
+    {
+        Recycler.releaseDigest(algorithm, messageDigest);
+    }
+
     @Override
     public boolean check(CharSequence plainTextPassword, String hashed)
     {
@@ -0,0 +1,479 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Hmac;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.security.DigestException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * PBKDF2 (RFC 8018) with HMAC, computed directly on {@link MessageDigest}s.
+ * <p>
+ * The states of the inner and outer digests after absorbing the padded key
+ * are computed once per password: each HMAC of the iteration loop starts from a clone of
+ * these states, so that only the message blocks are compressed instead of the key blocks too.
+ * The compression function is still the one of the JDK, together with its intrinsics.
+ * <p>
+ * The loop is not free of allocations: each iteration clones two digests, a few hundred bytes
+ * of short-lived garbage. Resetting two long-lived digests would not allocate, but it absorbs the
+ * padded key again at every HMAC, doubling the compressions and losing the gain over the JCE.
+ * <p>
+ * The result is identical to the one of the {@code PBKDF2WithHmac*} algorithms of the JCE,
+ * including the validation of the parameters and the UTF-8 encoding of the password.
+ * Once created, an instance can be used by many threads at the same time.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+final class PBKDF2Engine
+{
+
+    private static final MessageDigest[] PROTOTYPES = new MessageDigest[Hmac.values().length];
+
+    private static final int PARALLEL_ITERATIONS = PropertyReader.readInt("hash.pbkdf2.parallel.iterations", 1000);
+
+    private final MessageDigest inner;
+
+    private final MessageDigest outer;
+
+    private final int hLen;
+
+    private PBKDF2Engine(MessageDigest digest, int blockSize, byte[] key)
+    {
+        this.hLen = digest.getDigestLength();
+        this.inner = digest;
+        this.outer = copy(digest);
+
+        byte[] k = key.length > blockSize ? digest.digest(key) : key;
+        byte[] pad = new byte[blockSize];
+        for (int i = 0; i < blockSize; i++)
+        {
+            pad[i] = (byte) ((i < k.length ? k[i] : 0) ^ 0x36);
+        }
+        inner.update(pad);
+        for (int i = 0; i < blockSize; i++)
+        {
+            pad[i] = (byte) ((i < k.length ? k[i] : 0) ^ 0x5c);
+        }
+        outer.update(pad);
+
+        Arrays.fill(pad, (byte) 0);
+        if (k != key)
+        {
+            Arrays.fill(k, (byte) 0);
+        }
+    }
+
+    /**
+     * Prepares the HMAC states of a password.
+     *
+     * @param algorithm the name of the HMAC algorithm, as in {@link Hmac}
+     * @param key       the password
+     * @return the engine or {@code null} if the algorithm is not one of {@link Hmac}
+     * or its digest cannot be cloned
+     * @throws NoSuchAlgorithmException if the digest is not supported by the JVM
+     */
+    static PBKDF2Engine getInstance(String algorithm, byte[] key) throws NoSuchAlgorithmException
+    {
+        Hmac hmac = find(algorithm);
+        MessageDigest digest = hmac == null ? null : newDigest(hmac);
+        return digest == null ? null : newEngine(hmac, digest, key);
+    }
+
+    /**
+     * Derives a key from a password, as the JCE would do.
+     *
+     * @param algorithm    the name of the HMAC algorithm, as in {@link Hmac}
+     * @param password     the password, decoded from UTF-8 and encoded again if it is not valid UTF-8
+     * @param salt         the salt
+     * @param iterations   the number of iterations
+     * @param lengthInBits the length of the key in bits, truncated to a multiple of 8
+     * @return the derived key or {@code null} if the algorithm is not supported by this engine
+     * @throws NoSuchAlgorithmException if the digest is not supported by the JVM
+     * @throws IllegalArgumentException if the parameters are not accepted by {@link javax.crypto.spec.PBEKeySpec}
+     */
+    static byte[] derive(String algorithm, byte[] password, byte[] salt, int iterations, int lengthInBits)
+            throws NoSuchAlgorithmException
+    {
+        // like the JCE, the algorithm is looked up before checking the parameters
+        Hmac hmac = find(algorithm);
+        MessageDigest digest = hmac == null ? null : newDigest(hmac);
+        if (digest == null)
+        {
+            return null;
+        }
+        checkParameters(salt, iterations, lengthInBits);
+
+        byte[] key = password;
+        if (!Utils.isUtf8(password))
+        {
+            // as if the password were converted to chars for the JCE
+            CharBuffer decoded = Utils.DEFAULT_CHARSET.decode(ByteBuffer.wrap(password));
+            key = toUtf8(decoded);
+            Arrays.fill(decoded.array(), '\0');
+        }
+        try
+        {
+            return newEngine(hmac, digest, key).derive(salt, iterations, lengthInBits / 8);
+        }
+        finally
+        {
+            if (key != password)
+            {
+                Arrays.fill(key, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #derive(String, byte[], byte[], int, int)}, with a password
+     * encoded in UTF-8, where unpaired surrogates are replaced by {@code ?}.
+     */
+    static byte[] derive(String algorithm, char[] password, byte[] salt, int iterations, int lengthInBits)
+            throws NoSuchAlgorithmException
+    {
+        Hmac hmac = find(algorithm);
+        MessageDigest digest = hmac == null ? null : newDigest(hmac);
+        if (digest == null)
+        {
+            return null;
+        }
+        checkParameters(salt, iterations, lengthInBits);
+
+        byte[] key = toUtf8(CharBuffer.wrap(password == null ? new char[0] : password));
+        try
+        {
+            return newEngine(hmac, digest, key).derive(salt, iterations, lengthInBits / 8);
+        }
+        finally
+        {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    /**
+     * Derives a key. When it is longer than the digest and the number of iterations
+     * reaches {@code hash.pbkdf2.parallel.iterations}, its blocks are computed by the calling
+     * thread and the {@link WorkerPool}.
+     *
+     * @param salt       the salt
+     * @param iterations the number of iterations
+     * @param length     the length of the key in bytes
+     * @return the derived key
+     */
+    byte[] derive(byte[] salt, int iterations, int length)
+    {
+        byte[] result = new byte[length];
+        int blocks = (length + hLen - 1) / hLen;
+        if (isParallel(blocks, iterations))
+        {
+            List<Callable<Void>> tasks = new ArrayList<>(blocks);
+            for (int i = 1; i <= blocks; i++)
+            {
+                int index = i;
+                int offset = (i - 1) * hLen;
+                tasks.add(() -> {
+                    block(salt, index, iterations, result, offset, Math.min(hLen, length - offset));
+                    return null;
+                });
+            }
+            // each task writes its own range of the result
+            WorkerPool.invokeAll(tasks);
+        }
+        else
+        {
+            for (int i = 1; i <= blocks; i++)
+            {
+                int offset = (i - 1) * hLen;
+                block(salt, i, iterations, result, offset, Math.min(hLen, length - offset));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The blocks are independent, but with few iterations they are cheaper
+     * than handing them to the pool.
+     *
+     * @param blocks     the number of blocks of the derived key
+     * @param iterations the number of iterations
+     * @return true if the blocks are worth computing in parallel
+     */
+    static boolean isParallel(int blocks, int iterations)
+    {
+        return blocks > 1 && PARALLEL_ITERATIONS > 0 && iterations >= PARALLEL_ITERATIONS;
+    }
+
+    /**
+     * Derives a key with a {@link Mac} of the JVM, kept by the {@link Recycler} for the next call
+     * and keyed with the raw bytes of the password.
+     * It gives the same result of an engine created with {@link #getInstance(String, byte[])}
+     * and is used when that is not available.
+     *
+     * @param algorithm  the name of the HMAC algorithm, as in {@link Hmac}
+     * @param key        the password, used as is
+     * @param salt       the salt
+     * @param iterations the number of iterations
+     * @param length     the length of the key in bytes
+     * @return the derived key
+     * @throws GeneralSecurityException if the HMAC is not supported by the JVM
+     */
+    static byte[] deriveWithMac(String algorithm, byte[] key, byte[] salt, int iterations, int length)
+            throws GeneralSecurityException
+    {
+        String name = "Hmac" + algorithm;
+        Mac mac = Recycler.acquireMac(name);
+        int hLen = mac.getMacLength();
+        byte[] u = new byte[hLen];
+        byte[] t = new byte[hLen];
+        try
+        {
+            mac.init(new RawKey(mac.getAlgorithm(), key));
+            byte[] result = new byte[length];
+            for (int index = 1, off = 0; off < length; index++, off += hLen)
+            {
+                mac.update(salt);
+                mac.update(new byte[] {(byte) (index >>> 24), (byte) (index >>> 16), (byte) (index >>> 8), (byte) index});
+                mac.doFinal(u, 0);
+                System.arraycopy(u, 0, t, 0, hLen);
+                for (int i = 1; i < iterations; i++)
+                {
+                    mac.update(u);
+                    mac.doFinal(u, 0);
+                    for (int j = 0; j < hLen; j++)
+                    {
+                        t[j] ^= u[j];
+                    }
+                }
+                System.arraycopy(t, 0, result, off, Math.min(hLen, length - off));
+            }
+            return result;
+        }
+        finally
+        {
+            Arrays.fill(u, (byte) 0);
+            Arrays.fill(t, (byte) 0);
+            Recycler.releaseMac(name, mac);
+        }
+    }
+
+    /**
+     * Computes the block T<sub>index</sub> of the derived key.
+     *
+     * @param salt       the salt
+     * @param index      the index of the block, starting from 1
+     * @param iterations the number of iterations
+     * @param dst        the derived key
+     * @param off        the offset of the block in the derived key
+     * @param len        the number of bytes of the block to copy
+     */
+    void block(byte[] salt, int index, int iterations, byte[] dst, int off, int len)
+    {
+        byte[] u = new byte[hLen];
+        byte[] t = new byte[hLen];
+
+        MessageDigest digest = copy(inner);
+        digest.update(salt);
+        digest.update((byte) (index >>> 24));
+        digest.update((byte) (index >>> 16));
+        digest.update((byte) (index >>> 8));
+        digest.update((byte) index);
+        finish(digest, u);
+        digest = copy(outer);
+        digest.update(u);
+        finish(digest, u);
+        System.arraycopy(u, 0, t, 0, hLen);
+
+        for (int i = 1; i < iterations; i++)
+        {
+            digest = copy(inner);
+            digest.update(u);
+            finish(digest, u);
+            digest = copy(outer);
+            digest.update(u);
+            finish(digest, u);
+            for (int j = 0; j < hLen; j++)
+            {
+                t[j] ^= u[j];
+            }
+        }
+
+        System.arraycopy(t, 0, dst, off, len);
+        Arrays.fill(u, (byte) 0);
+        Arrays.fill(t, (byte) 0);
+    }
+
+    int getDigestLength()
+    {
+        return hLen;
+    }
+
+    /**
+     * @throws NullPointerException     if the salt is {@code null}
+     * @throws IllegalArgumentException if the salt is empty or the other parameters are not positive
+     */
+    static void checkParameters(byte[] salt, int iterations, int lengthInBits)
+    {
+        // same checks and messages of PBEKeySpec
+        if (salt == null)
+        {
+            throw new NullPointerException("the salt parameter must be non-null");
+        }
+        if (salt.length == 0)
+        {
+            throw new IllegalArgumentException("the salt parameter must not be empty");
+        }
+        if (iterations <= 0)
+        {
+            throw new IllegalArgumentException("invalid iterationCount value");
+        }
+        if (lengthInBits <= 0)
+        {
+            throw new IllegalArgumentException("invalid keyLength value");
+        }
+    }
+
+    private static Hmac find(String algorithm)
+    {
+        for (Hmac hmac : Hmac.values())
+        {
+            if (hmac.name().equals(algorithm))
+            {
+                return hmac;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return a new digest or {@code null} if the digests of the JVM cannot be cloned
+     */
+    private static MessageDigest newDigest(Hmac hmac) throws NoSuchAlgorithmException
+    {
+        MessageDigest prototype;
+        synchronized (PROTOTYPES)
+        {
+            prototype = PROTOTYPES[hmac.ordinal()];
+            if (prototype == null)
+            {
+                prototype = MessageDigest.getInstance("SHA-" + (hmac == Hmac.SHA1 ? "1" : Integer.toString(hmac.bits())));
+                PROTOTYPES[hmac.ordinal()] = prototype;
+            }
+        }
+
+        try
+        {
+            // the prototype is never updated, so it can be cloned concurrently
+            return (MessageDigest) prototype.clone();
+        }
+        catch (CloneNotSupportedException e)
+        {
+            return null;
+        }
+    }
+
+    private static PBKDF2Engine newEngine(Hmac hmac, MessageDigest digest, byte[] key)
+    {
+        return new PBKDF2Engine(digest, hmac.bits() > 256 ? 128 : 64, key);
+    }
+
+    private static MessageDigest copy(MessageDigest digest)
+    {
+        try
+        {
+            return (MessageDigest) digest.clone();
+        }
+        catch (CloneNotSupportedException e)
+        {
+            // the engine is created only for digests that can be cloned
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void finish(MessageDigest digest, byte[] out)
+    {
+        try
+        {
+            digest.digest(out, 0, out.length);
+        }
+        catch (DigestException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Unlike {@link javax.crypto.spec.SecretKeySpec}, it accepts empty passwords.
+     */
+    private static final class RawKey implements SecretKey
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String algorithm;
+
+        private final byte[] key;
+
+        private RawKey(String algorithm, byte[] key)
+        {
+            this.algorithm = algorithm;
+            this.key = key.clone();
+        }
+
+        @Override
+        public String getAlgorithm()
+        {
+            return algorithm;
+        }
+
+        @Override
+        public String getFormat()
+        {
+            return "RAW";
+        }
+
+        @Override
+        public byte[] getEncoded()
+        {
+            return key.clone();
+        }
+    }
+
+    private static byte[] toUtf8(CharBuffer chars)
+    {
+        ByteBuffer encoded = Utils.DEFAULT_CHARSET.encode(chars);
+        byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        if (encoded.hasArray())
+        {
+            Arrays.fill(encoded.array(), (byte) 0);
+        }
+        return bytes;
+    }
+
+}
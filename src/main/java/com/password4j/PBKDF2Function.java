@@ -21,12 +21,11 @@ import com.password4j.types.Hmac;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
-import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -38,8 +37,6 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class PBKDF2Function extends AbstractHashingFunction
 {
-    private static final Map<String, PBKDF2Function> INSTANCES = new ConcurrentHashMap<>();
-
     private static final String ALGORITHM_PREFIX = "PBKDF2WithHmac";
 
     protected Hmac algorithm;
@@ -101,17 +98,13 @@ public class PBKDF2Function extends AbstractHashingFunction
      */
     public static PBKDF2Function getInstance(String algorithm, int iterations, int length)
     {
-        String key = getUID(algorithm, iterations, length);
-        if (INSTANCES.containsKey(key))
-        {
-            return INSTANCES.get(key);
-        }
-        else
+        InstanceRegistry.Key key = InstanceRegistry.key(PBKDF2Function.class, iterations, length, 0, algorithm);
+        PBKDF2Function function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            PBKDF2Function function = new PBKDF2Function(algorithm, iterations, length);
-            INSTANCES.put(key, function);
-            return function;
+            function = InstanceRegistry.putIfAbsent(key, new PBKDF2Function(algorithm, iterations, length));
         }
+        return function;
     }
 
     protected static SecretKey internalHash(byte[] plainTextPassword, byte[] salt, String algorithm, int iterations, int length) throws NoSuchAlgorithmException, InvalidKeySpecException
@@ -120,11 +113,28 @@ public class PBKDF2Function extends AbstractHashingFunction
         {
             throw new IllegalArgumentException("Salt cannot be null");
         }
-        return internalHash(Utils.fromBytesToChars(plainTextPassword), salt, algorithm, iterations, length);
+        byte[] derived = PBKDF2Engine.derive(algorithm, plainTextPassword, salt, iterations, length);
+        if (derived == null || derived.length == 0)
+        {
+            // algorithms unknown to the engine and keys shorter than a byte, that SecretKeySpec does not accept
+            return internalHashWithProvider(Utils.fromBytesToChars(plainTextPassword), salt, algorithm, iterations, length);
+        }
+        return toSecretKey(derived, algorithm);
     }
 
     protected static SecretKey internalHash(char[] plain, byte[] salt, String algorithm, int iterations, int length)
             throws NoSuchAlgorithmException, InvalidKeySpecException
+    {
+        byte[] derived = PBKDF2Engine.derive(algorithm, plain, salt, iterations, length);
+        if (derived == null || derived.length == 0)
+        {
+            return internalHashWithProvider(plain, salt, algorithm, iterations, length);
+        }
+        return toSecretKey(derived, algorithm);
+    }
+
+    private static SecretKey internalHashWithProvider(char[] plain, byte[] salt, String algorithm, int iterations, int length)
+            throws NoSuchAlgorithmException, InvalidKeySpecException
     {
         SecretKeyFactory secretKeyFactory = SecretKeyFactory.getInstance(ALGORITHM_PREFIX + algorithm);
         PBEKeySpec spec = new PBEKeySpec(plain, salt, iterations, length);
@@ -138,6 +148,19 @@ public class PBKDF2Function extends AbstractHashingFunction
         }
     }
 
+    private static SecretKey toSecretKey(byte[] derived, String algorithm)
+    {
+        try
+        {
+            return new SecretKeySpec(derived, ALGORITHM_PREFIX + algorithm);
+        }
+        finally
+        {
+            // SecretKeySpec keeps a copy
+            Arrays.fill(derived, (byte) 0);
+        }
+    }
+
     protected static String getUID(String algorithm, int iterations, int length)
     {
         return algorithm + "|" + iterations + "|" + length;
@@ -16,6 +16,8 @@
  */
 package com.password4j;
 
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * This class provides the two main operations on password: hash and verify.
@@ -132,6 +134,28 @@ public class Password
         return new HashChecker(plainTextPassword, hash);
     }
 
+    /**
+     * Starts to verify many hash strings at once, each one against
+     * its plain text password.
+     * <p>
+     * This method is used to start the setup of a {@link BatchChecker}
+     * instance that finally should execute the {@link BatchChecker#with(HashingFunction)}
+     * method to verify the hashes concurrently.
+     *
+     * @param pairs plain text passwords, each one associated to its hash string
+     * @return a builder instance of {@link BatchChecker}
+     * @throws BadParametersException if the collection or any of its hashes are null.
+     * @since 1.8.5
+     */
+    public static BatchChecker checkAll(Collection<? extends Map.Entry<? extends CharSequence, String>> pairs)
+    {
+        if (pairs == null)
+        {
+            throw new BadParametersException("Pairs cannot be null");
+        }
+        return new BatchChecker(pairs);
+    }
+
     /**
      * Starts to verify if a hash object has been generated with
      * the given plain text password.
@@ -61,6 +61,16 @@ class PropertyReader
         return Integer.parseInt(str);
     }
 
+    static int readInt(String key, int defaultValue)
+    {
+        String str = readString(key);
+        if (str == null)
+        {
+            return defaultValue;
+        }
+        return Integer.parseInt(str);
+    }
+
     static boolean readBoolean(String key, boolean defaultValue)
     {
         String str = readString(key);
@@ -82,6 +92,43 @@ class PropertyReader
         return value;
     }
 
+    static String readString(String key, String defaultValue)
+    {
+        String value = readString(key);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        return value;
+    }
+
+    /**
+     * Reads the name of a constant, ignoring its case. Invalid names are logged and replaced by the default value,
+     * so that a typo does not prevent the classes reading it from being initialised.
+     *
+     * @param key          the key
+     * @param defaultValue the default constant
+     * @param <E>          the type of the enum
+     * @return the constant or the default value
+     */
+    static <E extends Enum<E>> E readEnum(String key, E defaultValue)
+    {
+        String str = readString(key);
+        if (str == null)
+        {
+            return defaultValue;
+        }
+        for (E constant : defaultValue.getDeclaringClass().getEnumConstants())
+        {
+            if (constant.name().equalsIgnoreCase(str.trim()))
+            {
+                return constant;
+            }
+        }
+        LOG.warn(MESSAGE, "`" + str + "` is not a valid value", defaultValue.name().toLowerCase(), key);
+        return defaultValue;
+    }
+
     static char readChar(String key, char defaultValue, String message)
     {
         String str = readString(key);
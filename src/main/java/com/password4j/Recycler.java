@@ -0,0 +1,311 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps objects that are expensive to create (e.g. {@link MessageDigest}s and {@link Mac}s, whose lookup
+ * goes through the synchronised providers of the JVM) for reuse by the next computations.
+ * <p>
+ * How they are kept is chosen with {@code global.recycler}:
+ * <ul>
+ *     <li>{@code threadlocal} (default): one object for each thread</li>
+ *     <li>{@code shared}: a pool shared by all the threads, holding at most {@code global.recycler.size}
+ *     idle objects (defaults to twice the number of processors)</li>
+ *     <li>{@code none}: nothing is kept and a new object is created every time, for the environments
+ *     where {@link ThreadLocal}s are not allowed or leak across redeployments</li>
+ * </ul>
+ * Objects are obtained with {@link #acquire()} and given back with {@link #release(Object)},
+ * so that a nested computation on the same thread never gets an object already in use.
+ * Objects that only hold state between two calls of the same thread are obtained with {@link #get()} instead.
+ *
+ * @param <T> the type of the objects
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+abstract class Recycler<T>
+{
+
+    enum Mode
+    {
+        THREADLOCAL, SHARED, NONE
+    }
+
+    static final Mode MODE = PropertyReader.readEnum("global.recycler", Mode.THREADLOCAL);
+
+    private static final int SIZE = PropertyReader.readInt("global.recycler.size", 2 * Utils.AVAILABLE_PROCESSORS);
+
+    private static final ConcurrentMap<String, Recycler<MessageDigest>> DIGESTS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, Recycler<Mac>> MACS = new ConcurrentHashMap<>();
+
+    private final Mode mode;
+
+    private final ThreadLocal<T> local;
+
+    private final Queue<T> shared;
+
+    private final AtomicInteger idle = new AtomicInteger();
+
+    private final int capacity;
+
+    Recycler()
+    {
+        this(MODE, SIZE);
+    }
+
+    Recycler(Mode mode, int capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new BadParametersException("Capacity cannot be negative");
+        }
+        this.mode = mode;
+        this.capacity = capacity;
+        this.local = mode == Mode.THREADLOCAL ? new ThreadLocal<T>() : null;
+        this.shared = mode == Mode.SHARED ? new ConcurrentLinkedQueue<T>() : null;
+    }
+
+    /**
+     * Takes an idle object or, if there is none, creates a new one.
+     *
+     * @return an object not in use by anyone else
+     */
+    T acquire()
+    {
+        T object = null;
+        if (mode == Mode.THREADLOCAL)
+        {
+            object = local.get();
+            if (object != null)
+            {
+                local.set(null);
+            }
+        }
+        else if (mode == Mode.SHARED)
+        {
+            object = shared.poll();
+            if (object != null)
+            {
+                idle.decrementAndGet();
+            }
+        }
+        return object != null ? object : create();
+    }
+
+    /**
+     * Clears the given object and keeps it for the next {@link #acquire()}, unless there is no room for it.
+     *
+     * @param object an object obtained with {@link #acquire()}
+     */
+    void release(T object)
+    {
+        if (object == null || mode == Mode.NONE)
+        {
+            return;
+        }
+        clear(object);
+        if (mode == Mode.THREADLOCAL)
+        {
+            if (local.get() == null)
+            {
+                local.set(object);
+            }
+        }
+        else if (idle.incrementAndGet() <= capacity)
+        {
+            shared.offer(object);
+        }
+        else
+        {
+            idle.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the object of the current thread or, when objects are not kept for each thread, a new one
+     */
+    T get()
+    {
+        if (mode != Mode.THREADLOCAL)
+        {
+            return create();
+        }
+        T object = local.get();
+        if (object == null)
+        {
+            object = create();
+            local.set(object);
+        }
+        return object;
+    }
+
+    int getIdle()
+    {
+        return mode == Mode.SHARED ? idle.get() : 0;
+    }
+
+    protected abstract T create();
+
+    /**
+     * Called when an object is given back.
+     *
+     * @param object the object to be cleared
+     */
+    protected void clear(T object)
+    {
+        // nothing to clear by default
+    }
+
+    /**
+     * @param algorithm the name of the digest
+     * @return a digest to be given back with {@link #releaseDigest(String, MessageDigest)}
+     * @throws NoSuchAlgorithmException if the algorithm is not supported by the JVM
+     */
+    static MessageDigest acquireDigest(String algorithm) throws NoSuchAlgorithmException
+    {
+        Recycler<MessageDigest> digests = DIGESTS.get(algorithm);
+        if (digests == null)
+        {
+            // unsupported algorithms fail here and are not cached
+            MessageDigest first = MessageDigest.getInstance(algorithm);
+            DIGESTS.putIfAbsent(algorithm, newDigests(algorithm));
+            return first;
+        }
+        return digests.acquire();
+    }
+
+    /**
+     * Resets the given digest and keeps it for reuse.
+     *
+     * @param algorithm the name used to obtain the digest
+     * @param digest    a digest obtained with {@link #acquireDigest(String)}
+     */
+    static void releaseDigest(String algorithm, MessageDigest digest)
+    {
+        Recycler<MessageDigest> digests = DIGESTS.get(algorithm);
+        if (digests != null)
+        {
+            digests.release(digest);
+        }
+    }
+
+    private static Recycler<MessageDigest> newDigests(final String algorithm)
+    {
+        return new Recycler<MessageDigest>()
+        {
+            @Override
+            protected MessageDigest create()
+            {
+                try
+                {
+                    return MessageDigest.getInstance(algorithm);
+                }
+                catch (NoSuchAlgorithmException nsae)
+                {
+                    // the algorithm has already been found once
+                    throw new IllegalStateException(nsae);
+                }
+            }
+
+            @Override
+            protected void clear(MessageDigest digest)
+            {
+                digest.reset();
+            }
+        };
+    }
+
+    /**
+     * @param algorithm the name of the MAC
+     * @return an uninitialised MAC or one keyed by its last user, to be initialised and
+     * given back with {@link #releaseMac(String, Mac)}
+     * @throws NoSuchAlgorithmException if the algorithm is not supported by the JVM
+     */
+    static Mac acquireMac(String algorithm) throws NoSuchAlgorithmException
+    {
+        Recycler<Mac> macs = MACS.get(algorithm);
+        if (macs == null)
+        {
+            // unsupported algorithms fail here and are not cached
+            Mac first = Mac.getInstance(algorithm);
+            MACS.putIfAbsent(algorithm, newMacs(algorithm));
+            return first;
+        }
+        return macs.acquire();
+    }
+
+    /**
+     * Replaces the key of the given MAC and keeps it for reuse.
+     *
+     * @param algorithm the name used to obtain the MAC
+     * @param mac       a MAC obtained with {@link #acquireMac(String)}
+     */
+    static void releaseMac(String algorithm, Mac mac)
+    {
+        Recycler<Mac> macs = MACS.get(algorithm);
+        if (macs != null)
+        {
+            macs.release(mac);
+        }
+    }
+
+    private static Recycler<Mac> newMacs(final String algorithm)
+    {
+        return new Recycler<Mac>()
+        {
+            @Override
+            protected Mac create()
+            {
+                try
+                {
+                    return Mac.getInstance(algorithm);
+                }
+                catch (NoSuchAlgorithmException nsae)
+                {
+                    // the algorithm has already been found once
+                    throw new IllegalStateException(nsae);
+                }
+            }
+
+            @Override
+            protected void clear(Mac mac)
+            {
+                try
+                {
+                    // the key of the last user must not be kept
+                    mac.init(new SecretKeySpec(new byte[1], algorithm));
+                }
+                catch (InvalidKeyException ike)
+                {
+                    throw new IllegalStateException(ike);
+                }
+            }
+        };
+    }
+
+}
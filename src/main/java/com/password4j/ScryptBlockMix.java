@@ -0,0 +1,45 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+/**
+ * BlockMix of scrypt, based on the Salsa20/8 core. It works on blocks of {@code 2 * r}
+ * chunks of 16 words, whose words may be stored in a different order than the natural one
+ * (see {@link #order()}), provided that the first word of each chunk stays in place.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+interface ScryptBlockMix
+{
+
+    /**
+     * @return the position of each of the 16 words of a chunk, or {@code null} if the words are in the natural order
+     */
+    int[] order();
+
+    /**
+     * Reads the block at {@code bi} and writes the result, already shuffled, at {@code yi}.
+     *
+     * @param xyArray   the words
+     * @param bi        the offset of the input block
+     * @param yi        the offset of the output block
+     * @param resources the number of pairs of chunks in a block (r)
+     */
+    void blockMix(int[] xyArray, int bi, int yi, int resources);
+
+}
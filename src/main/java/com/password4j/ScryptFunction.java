@@ -17,12 +17,14 @@
 package com.password4j;
 
 import com.password4j.types.Hmac;
+import com.password4j.types.MemoryBackend;
 
 import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Callable;
 
 
 /**
@@ -36,7 +38,59 @@ public class ScryptFunction extends AbstractHashingFunction
 {
     public static final int DERIVED_KEY_LENGTH = 64;
 
-    private static final ConcurrentMap<String, ScryptFunction> INSTANCES = new ConcurrentHashMap<>();
+    private static final long PARALLEL_MEMORY = PropertyReader.readInt("hash.scrypt.parallel.memory", 256) * 1024L * 1024L;
+
+    static final ScryptBlockMix SCALAR_BLOCK_MIX = new ScryptBlockMix()
+    {
+        @Override
+        public int[] order()
+        {
+            return null;
+        }
+
+        @Override
+        public void blockMix(int[] xyArray, int bi, int yi, int resources)
+        {
+            ScryptFunction.blockMix(xyArray, bi, yi, resources);
+        }
+    };
+
+    private static final ScryptBlockMix BLOCK_MIX = PropertyReader.readBoolean("hash.scrypt.vector", false) ?
+            loadVectorBlockMix(SCALAR_BLOCK_MIX) : SCALAR_BLOCK_MIX;
+
+    private static final int[] ORDER = BLOCK_MIX.order();
+
+    private static final MemoryBackend DEFAULT_BACKEND = PropertyReader.readEnum("hash.scrypt.memory.backend", MemoryBackend.HEAP);
+
+    private static final MemoryArena<ScryptMemory> ARENA = new MemoryArena<ScryptMemory>(
+            PropertyReader.readInt("hash.scrypt.arena.size", Utils.AVAILABLE_PROCESSORS), arenaMaxBytes())
+    {
+        @Override
+        protected ScryptMemory allocate(long key)
+        {
+            MemoryBackend backend = MemoryBackend.values()[(int) key & 0xF];
+            return ScryptMemory.allocate(backend, (int) (key >>> 32), (int) (key >>> 4) & 0xFFFFFFF);
+        }
+
+        @Override
+        protected void wipe(ScryptMemory memory)
+        {
+            memory.wipe();
+        }
+
+        @Override
+        protected void dispose(ScryptMemory memory)
+        {
+            memory.free();
+        }
+
+        @Override
+        protected long sizeOf(long key)
+        {
+            // V and XY
+            return (key >>> 32) * (key >>> 4 & 0xFFFFFFF) * 128 + (key >>> 4 & 0xFFFFFFF) * 256;
+        }
+    };
 
     private int workFactor; // N
 
@@ -44,8 +98,26 @@ public class ScryptFunction extends AbstractHashingFunction
 
     private int parallelization; // p
 
+    // XY as words, for the BlockMix on bytes of the public API
+    private final Recycler<int[]> blockWords = new Recycler<int[]>()
+    {
+        @Override
+        protected int[] create()
+        {
+            return new int[64 * resources];
+        }
+
+        @Override
+        protected void clear(int[] words)
+        {
+            Arrays.fill(words, 0);
+        }
+    };
+
     private int derivedKeyLength; // dkLen
 
+    private MemoryBackend backend;
+
     @SuppressWarnings("unused")
     private ScryptFunction()
     {
@@ -59,10 +131,7 @@ public class ScryptFunction extends AbstractHashingFunction
      */
     protected ScryptFunction(int workFactor, int resources, int parallelization)
     {
-        this.resources = resources;
-        this.workFactor = workFactor;
-        this.parallelization = parallelization;
-        this.derivedKeyLength = DERIVED_KEY_LENGTH;
+        this(workFactor, resources, parallelization, DERIVED_KEY_LENGTH);
     }
 
     /**
@@ -72,11 +141,17 @@ public class ScryptFunction extends AbstractHashingFunction
      * @param derivedKeyLength (dkLen)
      */
     protected ScryptFunction(int workFactor, int resources, int parallelization, int derivedKeyLength)
+    {
+        this(workFactor, resources, parallelization, derivedKeyLength, DEFAULT_BACKEND);
+    }
+
+    ScryptFunction(int workFactor, int resources, int parallelization, int derivedKeyLength, MemoryBackend backend)
     {
         this.resources = resources;
         this.workFactor = workFactor;
         this.parallelization = parallelization;
         this.derivedKeyLength = derivedKeyLength;
+        this.backend = backend;
     }
 
     /**
@@ -131,16 +206,76 @@ public class ScryptFunction extends AbstractHashingFunction
      */
     public static ScryptFunction getInstance(int workFactor, int resources, int parallelization, int derivedKeyLength)
     {
-        String key = getUID(resources, workFactor, parallelization, derivedKeyLength);
-        if (INSTANCES.containsKey(key))
+        return getInstance(workFactor, resources, parallelization, derivedKeyLength, DEFAULT_BACKEND);
+    }
+
+    /**
+     * Creates a singleton instance, depending on the provided
+     * N, r, p and dkLen parameters and on where the working memory is allocated.
+     *
+     * @param workFactor       work factor (N)
+     * @param resources        resources (r)
+     * @param parallelization  parallelization (p)
+     * @param derivedKeyLength derived key length (dkLen)
+     * @param backend          where the working memory is allocated
+     * @return a singleton instance
+     * @since 1.8.5
+     */
+    public static ScryptFunction getInstance(int workFactor, int resources, int parallelization, int derivedKeyLength,
+                                             MemoryBackend backend)
+    {
+        InstanceRegistry.Key key = InstanceRegistry.key(ScryptFunction.class, (long) workFactor << 32 | resources & 0xFFFFFFFFL, (long) parallelization << 32 | derivedKeyLength & 0xFFFFFFFFL, backend.ordinal(), null);
+        ScryptFunction function = InstanceRegistry.get(key);
+        if (function == null)
         {
-            return INSTANCES.get(key);
+            function = InstanceRegistry.putIfAbsent(key, new ScryptFunction(workFactor, resources, parallelization, derivedKeyLength, backend));
         }
-        else
+        return function;
+    }
+
+    /**
+     * Gives back the working memory kept for reuse by the idle computations.
+     * Instances do not hold any working memory: it is leased only for the duration of a hash.
+     *
+     * @since 1.8.5
+     */
+    public static void releaseWorkingMemory()
+    {
+        ARENA.clear();
+    }
+
+    /**
+     * @return the number of bytes of working memory kept for reuse
+     * @since 1.8.5
+     */
+    public static long getIdleWorkingMemory()
+    {
+        return ARENA.getIdleBytes();
+    }
+
+    private static long arenaMaxBytes()
+    {
+        // in MiB: idle memory is not accounted by MemoryBudget, so it is bounded unless explicitly unlimited
+        int maxMemory = PropertyReader.readInt("hash.scrypt.arena.memory", 256);
+        return maxMemory < 0 ? Long.MAX_VALUE : maxMemory * 1024L * 1024L;
+    }
+
+    /**
+     * Loads the implementation of BlockMix based on the Vector API, available only
+     * in the Java 17+ classes of the multi-release jar.
+     *
+     * @param fallback the implementation to use if the Vector API is not available
+     * @return the vectorised implementation or the fallback
+     */
+    static ScryptBlockMix loadVectorBlockMix(ScryptBlockMix fallback)
+    {
+        try
+        {
+            return (ScryptBlockMix) Class.forName("com.password4j.VectorScryptBlockMix").getDeclaredConstructor().newInstance();
+        }
+        catch (Exception | LinkageError e)
         {
-            ScryptFunction function = new ScryptFunction(workFactor, resources, parallelization, derivedKeyLength);
-            INSTANCES.put(key, function);
-            return function;
+            return fallback;
         }
     }
 
@@ -159,80 +294,183 @@ public class ScryptFunction extends AbstractHashingFunction
         return a << b | a >>> 32 - b;
     }
 
+    /**
+     * Applies the Salsa20/8 core to 64 bytes, in place.
+     *
+     * @param xArray the 64 bytes to transform
+     * @see #salsa208(int[], int)
+     */
     public static void salsa208(byte[] xArray)
     {
-        int[] b32 = new int[16];
-        int[] x = new int[16];
+        int[] words = new int[16];
+        toWords(xArray, 0, words, 0, 16);
+        salsa208(words, 0);
+        toBytes(words, 0, xArray, 0, 16);
+    }
 
-        int i;
-        for (i = 0; i < 16; ++i)
+    /**
+     * Applies the Salsa20/8 core to the 16 little-endian words starting
+     * at the given offset, in place. The state is kept in local variables
+     * and nothing is allocated.
+     *
+     * @param b   the words
+     * @param off the offset of the first word
+     * @since 1.8.5
+     */
+    static void salsa208(int[] b, int off)
+    {
+        int x0 = b[off];
+        int x1 = b[off + 1];
+        int x2 = b[off + 2];
+        int x3 = b[off + 3];
+        int x4 = b[off + 4];
+        int x5 = b[off + 5];
+        int x6 = b[off + 6];
+        int x7 = b[off + 7];
+        int x8 = b[off + 8];
+        int x9 = b[off + 9];
+        int x10 = b[off + 10];
+        int x11 = b[off + 11];
+        int x12 = b[off + 12];
+        int x13 = b[off + 13];
+        int x14 = b[off + 14];
+        int x15 = b[off + 15];
+
+        for (int i = 8; i > 0; i -= 2)
         {
-            b32[i] = (xArray[i * 4] & 255);
-            b32[i] |= (xArray[i * 4 + 1] & 255) << 8;
-            b32[i] |= (xArray[i * 4 + 2] & 255) << 16;
-            b32[i] |= (xArray[i * 4 + 3] & 255) << 24;
+            x4 ^= rOperation(x0 + x12, 7);
+            x8 ^= rOperation(x4 + x0, 9);
+            x12 ^= rOperation(x8 + x4, 13);
+            x0 ^= rOperation(x12 + x8, 18);
+            x9 ^= rOperation(x5 + x1, 7);
+            x13 ^= rOperation(x9 + x5, 9);
+            x1 ^= rOperation(x13 + x9, 13);
+            x5 ^= rOperation(x1 + x13, 18);
+            x14 ^= rOperation(x10 + x6, 7);
+            x2 ^= rOperation(x14 + x10, 9);
+            x6 ^= rOperation(x2 + x14, 13);
+            x10 ^= rOperation(x6 + x2, 18);
+            x3 ^= rOperation(x15 + x11, 7);
+            x7 ^= rOperation(x3 + x15, 9);
+            x11 ^= rOperation(x7 + x3, 13);
+            x15 ^= rOperation(x11 + x7, 18);
+            x1 ^= rOperation(x0 + x3, 7);
+            x2 ^= rOperation(x1 + x0, 9);
+            x3 ^= rOperation(x2 + x1, 13);
+            x0 ^= rOperation(x3 + x2, 18);
+            x6 ^= rOperation(x5 + x4, 7);
+            x7 ^= rOperation(x6 + x5, 9);
+            x4 ^= rOperation(x7 + x6, 13);
+            x5 ^= rOperation(x4 + x7, 18);
+            x11 ^= rOperation(x10 + x9, 7);
+            x8 ^= rOperation(x11 + x10, 9);
+            x9 ^= rOperation(x8 + x11, 13);
+            x10 ^= rOperation(x9 + x8, 18);
+            x12 ^= rOperation(x15 + x14, 7);
+            x13 ^= rOperation(x12 + x15, 9);
+            x14 ^= rOperation(x13 + x12, 13);
+            x15 ^= rOperation(x14 + x13, 18);
         }
 
-        System.arraycopy(b32, 0, x, 0, 16);
+        b[off] += x0;
+        b[off + 1] += x1;
+        b[off + 2] += x2;
+        b[off + 3] += x3;
+        b[off + 4] += x4;
+        b[off + 5] += x5;
+        b[off + 6] += x6;
+        b[off + 7] += x7;
+        b[off + 8] += x8;
+        b[off + 9] += x9;
+        b[off + 10] += x10;
+        b[off + 11] += x11;
+        b[off + 12] += x12;
+        b[off + 13] += x13;
+        b[off + 14] += x14;
+        b[off + 15] += x15;
+    }
 
-        for (i = 8; i > 0; i -= 2)
+    public static void blockXOR(byte[] sArray, int si, byte[] dArray, int di, int length)
+    {
+        for (int i = 0; i < length; ++i)
         {
-            x[4] ^= rOperation(x[0] + x[12], 7);
-            x[8] ^= rOperation(x[4] + x[0], 9);
-            x[12] ^= rOperation(x[8] + x[4], 13);
-            x[0] ^= rOperation(x[12] + x[8], 18);
-            x[9] ^= rOperation(x[5] + x[1], 7);
-            x[13] ^= rOperation(x[9] + x[5], 9);
-            x[1] ^= rOperation(x[13] + x[9], 13);
-            x[5] ^= rOperation(x[1] + x[13], 18);
-            x[14] ^= rOperation(x[10] + x[6], 7);
-            x[2] ^= rOperation(x[14] + x[10], 9);
-            x[6] ^= rOperation(x[2] + x[14], 13);
-            x[10] ^= rOperation(x[6] + x[2], 18);
-            x[3] ^= rOperation(x[15] + x[11], 7);
-            x[7] ^= rOperation(x[3] + x[15], 9);
-            x[11] ^= rOperation(x[7] + x[3], 13);
-            x[15] ^= rOperation(x[11] + x[7], 18);
-            x[1] ^= rOperation(x[0] + x[3], 7);
-            x[2] ^= rOperation(x[1] + x[0], 9);
-            x[3] ^= rOperation(x[2] + x[1], 13);
-            x[0] ^= rOperation(x[3] + x[2], 18);
-            x[6] ^= rOperation(x[5] + x[4], 7);
-            x[7] ^= rOperation(x[6] + x[5], 9);
-            x[4] ^= rOperation(x[7] + x[6], 13);
-            x[5] ^= rOperation(x[4] + x[7], 18);
-            x[11] ^= rOperation(x[10] + x[9], 7);
-            x[8] ^= rOperation(x[11] + x[10], 9);
-            x[9] ^= rOperation(x[8] + x[11], 13);
-            x[10] ^= rOperation(x[9] + x[8], 18);
-            x[12] ^= rOperation(x[15] + x[14], 7);
-            x[13] ^= rOperation(x[12] + x[15], 9);
-            x[14] ^= rOperation(x[13] + x[12], 13);
-            x[15] ^= rOperation(x[14] + x[13], 18);
+            dArray[di + i] ^= sArray[si + i];
         }
 
-        for (i = 0; i < 16; ++i)
+    }
+
+    static void blockXOR(int[] sArray, int si, int[] dArray, int di, int length)
+    {
+        for (int i = 0; i < length; ++i)
         {
-            b32[i] += x[i];
+            dArray[di + i] ^= sArray[si + i];
         }
+    }
 
-        for (i = 0; i < 16; ++i)
+    static void toWords(byte[] src, int srcOff, int[] dst, int dstOff, int words)
+    {
+        for (int i = 0; i < words; i++)
         {
-            xArray[i * 4] = (byte) (b32[i] & 255);
-            xArray[i * 4 + 1] = (byte) (b32[i] >> 8 & 255);
-            xArray[i * 4 + 2] = (byte) (b32[i] >> 16 & 255);
-            xArray[i * 4 + 3] = (byte) (b32[i] >> 24 & 255);
+            int j = srcOff + i * 4;
+            dst[dstOff + i] = (src[j] & 255) | (src[j + 1] & 255) << 8 | (src[j + 2] & 255) << 16 | (src[j + 3] & 255) << 24;
         }
+    }
 
+    /**
+     * Converts chunks of 16 words, storing them in the given order.
+     *
+     * @param order the position of each word of a chunk, {@code null} for the natural order
+     * @see ScryptBlockMix#order()
+     */
+    static void toWords(byte[] src, int srcOff, int[] dst, int dstOff, int words, int[] order)
+    {
+        if (order == null)
+        {
+            toWords(src, srcOff, dst, dstOff, words);
+            return;
+        }
+        for (int i = 0; i < words; i++)
+        {
+            int j = srcOff + i * 4;
+            dst[dstOff + (i & ~15) + order[i & 15]] = (src[j] & 255) | (src[j + 1] & 255) << 8 | (src[j + 2] & 255) << 16 | (src[j + 3] & 255) << 24;
+        }
     }
 
-    public static void blockXOR(byte[] sArray, int si, byte[] dArray, int di, int length)
+    /**
+     * Converts chunks of 16 words stored in the given order.
+     *
+     * @param order the position of each word of a chunk, {@code null} for the natural order
+     * @see ScryptBlockMix#order()
+     */
+    static void toBytes(int[] src, int srcOff, byte[] dst, int dstOff, int words, int[] order)
     {
-        for (int i = 0; i < length; ++i)
+        if (order == null)
         {
-            dArray[di + i] ^= sArray[si + i];
+            toBytes(src, srcOff, dst, dstOff, words);
+            return;
+        }
+        for (int i = 0; i < words; i++)
+        {
+            int w = src[srcOff + (i & ~15) + order[i & 15]];
+            int j = dstOff + i * 4;
+            dst[j] = (byte) w;
+            dst[j + 1] = (byte) (w >>> 8);
+            dst[j + 2] = (byte) (w >>> 16);
+            dst[j + 3] = (byte) (w >>> 24);
         }
+    }
 
+    static void toBytes(int[] src, int srcOff, byte[] dst, int dstOff, int words)
+    {
+        for (int i = 0; i < words; i++)
+        {
+            int w = src[srcOff + i];
+            int j = dstOff + i * 4;
+            dst[j] = (byte) w;
+            dst[j + 1] = (byte) (w >>> 8);
+            dst[j + 2] = (byte) (w >>> 16);
+            dst[j + 3] = (byte) (w >>> 24);
+        }
     }
 
     @Override
@@ -299,7 +537,17 @@ public class ScryptFunction extends AbstractHashingFunction
                 byte[] salt = Utils.decodeBase64(parts.get(2));
                 byte[] derived0 = Utils.decodeBase64(parts.get(3));
                 byte[] derived1 = scrypt(plainTextPassword, salt, derivedKeyLength);
-                return slowEquals(derived0, derived1);
+                boolean matches = slowEquals(derived0, derived1);
+                if (!Utils.isUtf8(plainTextPassword))
+                {
+                    // before 1.8.5 these passwords were decoded and encoded again in UTF-8.
+                    // Both the keys are always computed, so the time does not tell which one matched
+                    byte[] normalised = Utils.fromCharSequenceToBytes(Utils.fromBytesToString(plainTextPassword));
+                    byte[] legacy = scrypt(normalised, salt, derivedKeyLength);
+                    Arrays.fill(normalised, (byte) 0);
+                    matches |= slowEquals(derived0, legacy);
+                }
+                return matches;
             }
             else
             {
@@ -344,6 +592,15 @@ public class ScryptFunction extends AbstractHashingFunction
         return derivedKeyLength;
     }
 
+    /**
+     * @return where the working memory is allocated
+     * @since 1.8.5
+     */
+    public MemoryBackend getMemoryBackend()
+    {
+        return backend;
+    }
+
     /**
      * A more readable version of {@link #getRequiredBytes()},
      * changing the unit (B, KB, MB) so that the number has at most
@@ -407,19 +664,32 @@ public class ScryptFunction extends AbstractHashingFunction
             }
             else
             {
-                byte[] xyArray = new byte[256 * resources];
-                byte[] vArray = new byte[128 * resources * workFactor];
-                byte[] intensiveSalt = PBKDF2Function.internalHash(Utils.fromBytesToString(passwd).toCharArray(), salt, Hmac.SHA256.name(), 1,
-                        8 * parallelization * 128 * resources).getEncoded();
+                PBKDF2Engine.checkParameters(salt, 1, 8 * dkLen);
 
-                for (int i = 0; i < parallelization; ++i)
+                // the raw bytes of the password are the key of both the derivations
+                PBKDF2Engine hmac = PBKDF2Engine.getInstance(Hmac.SHA256.name(), passwd);
+                byte[] intensiveSalt = pbkdf2(hmac, passwd, salt, parallelization * 128 * resources);
+
+                boolean parallel = isParallel();
+                long reserved = parallel ? MemoryBudget.tryAcquire(getRequiredBytes()) : -1;
+                if (reserved < 0)
+                {
+                    // not enough memory for all the lanes at once
+                    parallel = false;
+                    reserved = MemoryBudget.acquire(128L * workFactor * resources);
+                }
+                try
                 {
-                    sMix(intensiveSalt, i * 128 * resources, vArray, xyArray);
+                    roMix(intensiveSalt, parallel);
+                }
+                finally
+                {
+                    MemoryBudget.release(reserved);
                 }
 
-                return PBKDF2Function
-                        .internalHash(Utils.fromBytesToString(passwd).toCharArray(), intensiveSalt, Hmac.SHA256.name(), 1, 8 * dkLen)
-                        .getEncoded();
+                byte[] derived = pbkdf2(hmac, passwd, intensiveSalt, dkLen);
+                Arrays.fill(intensiveSalt, (byte) 0);
+                return derived;
             }
         }
         else
@@ -428,52 +698,223 @@ public class ScryptFunction extends AbstractHashingFunction
         }
     }
 
+    /**
+     * One iteration of PBKDF2-HMAC-SHA256 keyed with the raw bytes of the password.
+     * The {@link javax.crypto.Mac} of the JVM is used only if its digests cannot be cloned.
+     */
+    private static byte[] pbkdf2(PBKDF2Engine hmac, byte[] passwd, byte[] salt, int length) throws GeneralSecurityException
+    {
+        if (hmac != null)
+        {
+            return hmac.derive(salt, 1, length);
+        }
+        return PBKDF2Engine.deriveWithMac(Hmac.SHA256.name(), passwd, salt, 1, length);
+    }
+
+    /**
+     * The {@code p} lanes of scrypt are independent: they are computed in parallel, each with
+     * its own working memory, when {@code p > 1} and the memory of all the lanes
+     * ({@link #getRequiredBytes()}) does not exceed {@code hash.scrypt.parallel.memory} (in MiB, 256 by default).
+     * Otherwise they are computed one after the other, reusing the same working memory.
+     *
+     * @return true if the lanes can be computed in parallel
+     * @since 1.8.5
+     */
+    boolean isParallel()
+    {
+        return parallelization > 1 && getRequiredBytes() <= PARALLEL_MEMORY;
+    }
+
+    /**
+     * Applies ROMix to each of the {@code p} blocks of {@code 128 * r} bytes, in place.
+     *
+     * @param intensiveSalt the blocks
+     * @param parallel      true if the blocks are processed by the calling thread and the {@link WorkerPool}
+     * @since 1.8.5
+     */
+    void roMix(byte[] intensiveSalt, boolean parallel)
+    {
+        if (parallel)
+        {
+            List<Callable<Void>> lanes = new ArrayList<>(parallelization);
+            for (int i = 0; i < parallelization; ++i)
+            {
+                int offset = i * 128 * resources;
+                lanes.add(() -> {
+                    ScryptMemory memory = ARENA.lease(getArenaKey());
+                    try
+                    {
+                        sMix(intensiveSalt, offset, memory);
+                    }
+                    finally
+                    {
+                        // each lane writes only to its own memory, which is wiped before being kept
+                        ARENA.release(getArenaKey(), memory);
+                    }
+                    return null;
+                });
+            }
+            WorkerPool.invokeAll(lanes);
+        }
+        else
+        {
+            ScryptMemory memory = ARENA.lease(getArenaKey());
+            try
+            {
+                for (int i = 0; i < parallelization; ++i)
+                {
+                    sMix(intensiveSalt, i * 128 * resources, memory);
+                }
+            }
+            finally
+            {
+                ARENA.release(getArenaKey(), memory);
+            }
+        }
+    }
+
+    private void sMix(byte[] intensiveSalt, int bi, ScryptMemory memory)
+    {
+        int words = 32 * resources;
+        toWords(intensiveSalt, bi, memory.xy(), 0, words, ORDER);
+        sMix(memory);
+        toBytes(memory.xy(), 0, intensiveSalt, bi, words, ORDER);
+    }
+
+    private long getArenaKey()
+    {
+        return (long) workFactor << 32 | (long) resources << 4 | backend.ordinal();
+    }
+
+    /**
+     * ROMix on the block of {@code 128 * r} bytes starting at {@code bi}, on bytes.
+     * The hashes of this class are computed on words instead, see {@link #sMix(ScryptMemory)}.
+     *
+     * @param intensiveSalt the blocks
+     * @param bi            the offset of the block
+     * @param vArray        V, at least {@code 128 * r * N} bytes
+     * @param xyArray       XY, at least {@code 256 * r} bytes
+     */
     public void sMix(byte[] intensiveSalt, int bi, byte[] vArray, byte[] xyArray)
     {
+        int blockBytes = 128 * resources;
         int xi = 0;
-        int yi = 128 * resources;
-        System.arraycopy(intensiveSalt, bi, xyArray, xi, 128 * resources);
+        int yi = blockBytes;
+        System.arraycopy(intensiveSalt, bi, xyArray, xi, blockBytes);
 
         int i;
         for (i = 0; i < workFactor; ++i)
         {
-            System.arraycopy(xyArray, xi, vArray, i * 128 * resources, 128 * resources);
+            System.arraycopy(xyArray, xi, vArray, i * blockBytes, blockBytes);
             blockmixSalsa8(xyArray, xi, yi);
         }
 
         for (i = 0; i < workFactor; ++i)
         {
             int j = integerify(xyArray, xi) & workFactor - 1;
-            blockXOR(vArray, j * 128 * resources, xyArray, xi, 128 * resources);
+            blockXOR(vArray, j * blockBytes, xyArray, xi, blockBytes);
             blockmixSalsa8(xyArray, xi, yi);
         }
 
-        System.arraycopy(xyArray, xi, intensiveSalt, bi, 128 * resources);
+        System.arraycopy(xyArray, xi, intensiveSalt, bi, blockBytes);
     }
 
-    public void blockmixSalsa8(byte[] xyArray, int bi, int yi)
+    /**
+     * ROMix on little-endian words. The block is read from and written back to
+     * the first {@code 32 * r} words of XY; the other half is the scratch area of BlockMix.
+     * The two halves swap roles at every step, so that no block is copied between them.
+     *
+     * @param memory the working memory, with the input block at the beginning of XY,
+     *               its words stored in the order required by the BlockMix in use
+     * @since 1.8.5
+     */
+    void sMix(ScryptMemory memory)
     {
-        byte[] xArray = new byte[64];
-        System.arraycopy(xyArray, bi + (2 * resources - 1) * 64, xArray, 0, 64);
+        int[] xyArray = memory.xy();
+        int words = 32 * resources;
+        int xi = 0;
+        int yi = words;
 
         int i;
-        for (i = 0; i < 2 * resources; ++i)
+        for (i = 0; i < workFactor; ++i)
         {
-            blockXOR(xyArray, i * 64, xArray, 0, 64);
-            salsa208(xArray);
-            System.arraycopy(xArray, 0, xyArray, yi + i * 64, 64);
+            memory.store(i, xyArray, xi);
+            BLOCK_MIX.blockMix(xyArray, xi, yi, resources);
+            int t = xi;
+            xi = yi;
+            yi = t;
         }
 
-        for (i = 0; i < resources; ++i)
+        for (i = 0; i < workFactor; ++i)
         {
-            System.arraycopy(xyArray, yi + i * 2 * 64, xyArray, bi + i * 64, 64);
+            int j = xyArray[xi + words - 16] & workFactor - 1;
+            memory.xor(j, xyArray, xi);
+            BLOCK_MIX.blockMix(xyArray, xi, yi, resources);
+            int t = xi;
+            xi = yi;
+            yi = t;
         }
 
-        for (i = 0; i < resources; ++i)
+        // N is even, so the result is back in the first half
+    }
+
+    /**
+     * BlockMix on bytes: the block at {@code bi} is replaced by the result, while the outputs
+     * of Salsa20/8, before the shuffle, are written at {@code yi}.
+     * The words are kept by the current thread for the next call.
+     *
+     * @param xyArray the bytes
+     * @param bi      the offset of the block
+     * @param yi      the offset of Y
+     */
+    public void blockmixSalsa8(byte[] xyArray, int bi, int yi)
+    {
+        int words = 32 * resources;
+        int[] xy = blockWords.acquire();
+        try
+        {
+            toWords(xyArray, bi, xy, 0, words);
+            blockmixSalsa8(xy, 0, words);
+            for (int i = 0; i < 2 * resources; ++i)
+            {
+                toBytes(xy, words + ((i & 1) * resources + (i >> 1)) * 16, xyArray, yi + i * 64, 16);
+            }
+            toBytes(xy, words, xyArray, bi, words);
+        }
+        finally
         {
-            System.arraycopy(xyArray, yi + (i * 2 + 1) * 64, xyArray, bi + (i + resources) * 64, 64);
+            blockWords.release(xy);
         }
+    }
+
+    /**
+     * BlockMix on little-endian words: reads the block at {@code bi} and writes the
+     * result, already shuffled, at {@code yi}. Each Salsa20/8 is computed in place on
+     * its output position, chaining from the previous output.
+     *
+     * @param xyArray the words
+     * @param bi      the offset of the input block
+     * @param yi      the offset of the output block
+     * @since 1.8.5
+     */
+    void blockmixSalsa8(int[] xyArray, int bi, int yi)
+    {
+        blockMix(xyArray, bi, yi, resources);
+    }
 
+    private static void blockMix(int[] xyArray, int bi, int yi, int resources)
+    {
+        int prev = bi + (2 * resources - 1) * 16;
+        for (int i = 0; i < 2 * resources; ++i)
+        {
+            int out = yi + ((i & 1) * resources + (i >> 1)) * 16;
+            for (int k = 0; k < 16; ++k)
+            {
+                xyArray[out + k] = xyArray[prev + k] ^ xyArray[bi + i * 16 + k];
+            }
+            salsa208(xyArray, out);
+            prev = out;
+        }
     }
 
     public int integerify(byte[] xyArray, int xi)
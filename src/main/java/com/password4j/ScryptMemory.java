@@ -0,0 +1,222 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.MemoryBackend;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Working memory of a single scrypt lane: the {@code N} blocks of {@code 32 * r} words
+ * written and read back by ROMix (V) and the two blocks used by BlockMix (XY).
+ * <p>
+ * XY is always stored in the heap, because every step of the computation works on it.
+ * V can be stored outside the heap ({@link OffHeap}): blocks are copied into it with
+ * {@link #store(int, int[], int)} and XORed back with {@link #xor(int, int[], int)}.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+abstract class ScryptMemory
+{
+
+    final int blockWords;
+
+    private final int[] xy;
+
+    ScryptMemory(int resources)
+    {
+        this.blockWords = 32 * resources;
+        this.xy = new int[2 * blockWords];
+    }
+
+    static ScryptMemory allocate(MemoryBackend backend, int workFactor, int resources)
+    {
+        if (backend == MemoryBackend.OFF_HEAP)
+        {
+            return new OffHeap(workFactor, resources, OffHeap.CHUNK_BYTES);
+        }
+        return new Heap(workFactor, resources);
+    }
+
+    /**
+     * @return the {@code 64 * r} words of XY
+     */
+    int[] xy()
+    {
+        return xy;
+    }
+
+    /**
+     * Overwrites a block of V.
+     *
+     * @param block  the index of the block
+     * @param source the array containing the block
+     * @param offset the offset of the block in the array
+     */
+    abstract void store(int block, int[] source, int offset);
+
+    /**
+     * XORs a block of V into the given array.
+     *
+     * @param block       the index of the block
+     * @param destination the array containing the other operand
+     * @param offset      the offset of the other operand in the array
+     */
+    abstract void xor(int block, int[] destination, int offset);
+
+    abstract void wipeBlocks();
+
+    /**
+     * Overwrites the whole memory with zeros.
+     */
+    void wipe()
+    {
+        wipeBlocks();
+        Arrays.fill(xy, 0);
+    }
+
+    /**
+     * Gives back the resources that are not managed by the garbage collector.
+     * The memory must not be used afterwards.
+     */
+    void free()
+    {
+        // nothing to do for heap memory
+    }
+
+    static final class Heap extends ScryptMemory
+    {
+        private final int[] v;
+
+        Heap(int workFactor, int resources)
+        {
+            super(resources);
+            this.v = new int[blockWords * workFactor];
+        }
+
+        @Override
+        void store(int block, int[] source, int offset)
+        {
+            System.arraycopy(source, offset, v, block * blockWords, blockWords);
+        }
+
+        @Override
+        void xor(int block, int[] destination, int offset)
+        {
+            ScryptFunction.blockXOR(v, block * blockWords, destination, offset, blockWords);
+        }
+
+        @Override
+        void wipeBlocks()
+        {
+            Arrays.fill(v, 0);
+        }
+    }
+
+    static final class OffHeap extends ScryptMemory
+    {
+        /**
+         * Chunks of at most 1 GiB, because a buffer cannot hold more than 2<sup>31</sup>-1 bytes
+         */
+        static final int CHUNK_BYTES = 1 << 30;
+
+        private final ByteBuffer[] buffers;
+
+        private final IntBuffer[] chunks;
+
+        private final int shift;
+
+        private final int mask;
+
+        OffHeap(int workFactor, int resources, int chunkBytes)
+        {
+            super(resources);
+            // blocks per chunk: the largest power of 2 that fits, N at most
+            int shift = 0;
+            while (shift < 30 && (1 << shift + 1) <= workFactor && (long) blockWords * 4 << shift + 1 <= chunkBytes)
+            {
+                shift++;
+            }
+            this.shift = shift;
+            this.mask = (1 << shift) - 1;
+
+            int chunkCount = ((workFactor - 1) >>> shift) + 1;
+            this.buffers = new ByteBuffer[chunkCount];
+            this.chunks = new IntBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++)
+            {
+                int blocksInChunk = Math.min(workFactor - (i << shift), 1 << shift);
+                buffers[i] = ByteBuffer.allocateDirect(blocksInChunk * blockWords * 4).order(ByteOrder.nativeOrder());
+                chunks[i] = buffers[i].asIntBuffer();
+            }
+        }
+
+        @Override
+        void store(int block, int[] source, int offset)
+        {
+            IntBuffer chunk = chunks[block >>> shift];
+            int start = (block & mask) * blockWords;
+            for (int i = 0; i < blockWords; i++)
+            {
+                chunk.put(start + i, source[offset + i]);
+            }
+        }
+
+        @Override
+        void xor(int block, int[] destination, int offset)
+        {
+            IntBuffer chunk = chunks[block >>> shift];
+            int start = (block & mask) * blockWords;
+            for (int i = 0; i < blockWords; i++)
+            {
+                destination[offset + i] ^= chunk.get(start + i);
+            }
+        }
+
+        @Override
+        void wipeBlocks()
+        {
+            for (IntBuffer chunk : chunks)
+            {
+                for (int i = 0; i < chunk.capacity(); i++)
+                {
+                    chunk.put(i, 0);
+                }
+            }
+        }
+
+        @Override
+        void free()
+        {
+            for (int i = 0; i < buffers.length; i++)
+            {
+                BlockMemory.Cleaner.clean(buffers[i]);
+                buffers[i] = null;
+                chunks[i] = null;
+            }
+        }
+
+        int chunks()
+        {
+            return chunks.length;
+        }
+    }
+}
@@ -32,8 +32,13 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -147,6 +152,70 @@ class Utils
         return new String(bytes, DEFAULT_CHARSET).toCharArray();
     }
 
+    /**
+     * Checks if the given bytes are a well-formed UTF-8 sequence: no overlong
+     * encodings, no surrogates and no code points above U+10FFFF.
+     *
+     * @param bytes the bytes
+     * @return true if decoding the bytes as UTF-8 does not replace any character
+     */
+    static boolean isUtf8(byte[] bytes)
+    {
+        int i = 0;
+        while (i < bytes.length)
+        {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80)
+            {
+                i++;
+                continue;
+            }
+
+            int trailing;
+            int min = 0x80;
+            int max = 0xBF;
+            if (b >= 0xC2 && b <= 0xDF)
+            {
+                trailing = 1;
+            }
+            else if (b >= 0xE0 && b <= 0xEF)
+            {
+                trailing = 2;
+                min = b == 0xE0 ? 0xA0 : 0x80;
+                max = b == 0xED ? 0x9F : 0xBF;
+            }
+            else if (b >= 0xF0 && b <= 0xF4)
+            {
+                trailing = 3;
+                min = b == 0xF0 ? 0x90 : 0x80;
+                max = b == 0xF4 ? 0x8F : 0xBF;
+            }
+            else
+            {
+                return false;
+            }
+
+            if (i + trailing >= bytes.length)
+            {
+                return false;
+            }
+            int second = bytes[i + 1] & 0xFF;
+            if (second < min || second > max)
+            {
+                return false;
+            }
+            for (int j = 2; j <= trailing; j++)
+            {
+                if ((bytes[i + j] & 0xC0) != 0x80)
+                {
+                    return false;
+                }
+            }
+            i += trailing + 1;
+        }
+        return true;
+    }
+
     static CharSequence append(CharSequence cs1, CharSequence cs2)
     {
         if (cs1 == null || cs1.length() == 0)
@@ -257,12 +326,16 @@ class Utils
     static long[] fromBytesToLongs(byte[] input)
     {
         long[] v = new long[128];
-        for (int i = 0; i < v.length; i++)
+        fromBytesToLongs(input, v, 0);
+        return v;
+    }
+
+    static void fromBytesToLongs(byte[] input, long[] output, int offset)
+    {
+        for (int i = 0; i < input.length / 8; i++)
         {
-            byte[] slice = Arrays.copyOfRange(input, i * 8, (i + 1) * 8);
-            v[i] = littleEndianBytesToLong(slice);
+            output[offset + i] = littleEndianToLong(input, i * 8);
         }
-        return v;
     }
 
     static String fromBytesToString(byte[] input)
@@ -303,22 +376,6 @@ class Utils
         return littleEndianBytesToLong(bytes);
     }
 
-    static void xor(long[] t, long[] b1, long[] b2)
-    {
-        for (int i = 0; i < t.length; i++)
-        {
-            t[i] = b1[i] ^ b2[i];
-        }
-    }
-
-    static void xor(long[] t, long[] b1, long[] b2, long[] b3)
-    {
-        for (int i = 0; i < t.length; i++)
-        {
-            t[i] = b1[i] ^ b2[i] ^ b3[i];
-        }
-    }
-
     static void xor(long[] t, long[] other)
     {
         for (int i = 0; i < t.length; i++)
@@ -385,6 +442,16 @@ class Utils
         return dst;
     }
 
+    /**
+     * @param c a character
+     * @return the 6-bit value of the character in the standard Base64 alphabet,
+     * {@code -2} for the padding character or {@code -1} if it is not part of the alphabet
+     */
+    static int fromBase64(int c)
+    {
+        return c >= 0 && c < FROM_BASE64.length ? FROM_BASE64[c] : -1;
+    }
+
     static byte[] encode(byte[] src, boolean padding)
     {
         int len = outLength(src.length, padding);
@@ -661,18 +728,46 @@ class Utils
         return byteArrays;
     }
 
-    static ExecutorService createExecutorService()
+    static ExecutorService createExecutorService(int size, String name)
     {
-        ExecutorService executorService =  Executors.newFixedThreadPool(AVAILABLE_PROCESSORS, runnable -> {
-            Thread thread = new Thread(THREAD_GROUP, runnable, "password4j-worker-" + THREAD_COUNTER.getAndIncrement());
-            thread.setDaemon(true);
-            return thread;
-        });
+        if (size < 1)
+        {
+            throw new BadParametersException("The size of the pool must be positive, found " + size);
+        }
+
+        ExecutorService executorService =  Executors.newFixedThreadPool(size, threadFactory(name));
 
         addShutdownHook(executorService);
         return executorService;
     }
 
+    static ExecutorService createExecutorService(int size, int queueSize, RejectedExecutionHandler handler, String name)
+    {
+        if (size < 1)
+        {
+            throw new BadParametersException("The size of the pool must be positive, found " + size);
+        }
+        if (queueSize < 1)
+        {
+            throw new BadParametersException("The size of the queue must be positive, found " + queueSize);
+        }
+
+        ExecutorService executorService = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueSize), threadFactory(name), handler);
+
+        addShutdownHook(executorService);
+        return executorService;
+    }
+
+    private static ThreadFactory threadFactory(String name)
+    {
+        return runnable -> {
+            Thread thread = new Thread(THREAD_GROUP, runnable, name + "-" + THREAD_COUNTER.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     static void addShutdownHook(ExecutorService executorService)
     {
         Runtime.getRuntime().addShutdownHook(new Thread(executorService::shutdownNow, "password4j-shutdownhook"));
@@ -0,0 +1,224 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Process-wide pool of workers shared by all the functions that
+ * compute their lanes in parallel (e.g. {@link Argon2Function}, {@link ScryptFunction} and {@link BalloonHashingFunction}).
+ * <p>
+ * The {@link ExecutorService} is chosen the first time it is needed, in this order:
+ * <ol>
+ *     <li>the one set with {@link #setExecutorService(ExecutorService)}</li>
+ *     <li>the one supplied by the first {@link ExecutorServiceProvider} found by {@link ServiceLoader}</li>
+ *     <li>a fixed pool of daemon threads, sized with {@code global.pool.size} (defaults to the number of processors)
+ *     and named after {@code global.pool.name} (defaults to {@code password4j-worker})</li>
+ * </ol>
+ * <p>
+ * The calling thread always takes part in the computation: only the remaining work is handed to the pool,
+ * and when the pool is saturated or rejects the work the caller completes it sequentially.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public final class WorkerPool
+{
+
+    private static final Logger LOG = LoggerFactory.getLogger(WorkerPool.class);
+
+    private static volatile ExecutorService executorService;
+
+    private static boolean owned;
+
+    private WorkerPool()
+    {
+        //
+    }
+
+    /**
+     * Replaces the shared {@link ExecutorService}. If the previous one was created by Password4j
+     * it is shut down after the running computations complete.
+     * <p>
+     * The lifecycle of the given {@link ExecutorService} is owned by the caller.
+     * Passing {@code null} restores the default behaviour.
+     *
+     * @param executorService the {@link ExecutorService} to be shared, or {@code null}
+     * @since 1.8.5
+     */
+    public static synchronized void setExecutorService(ExecutorService executorService)
+    {
+        ExecutorService previous = WorkerPool.executorService;
+        if (previous != null && owned)
+        {
+            previous.shutdown();
+        }
+        WorkerPool.executorService = executorService;
+        WorkerPool.owned = false;
+    }
+
+    static ExecutorService get()
+    {
+        ExecutorService result = executorService;
+        if (result == null)
+        {
+            synchronized (WorkerPool.class)
+            {
+                result = executorService;
+                if (result == null)
+                {
+                    result = load();
+                    executorService = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hands a task to the pool, unless the pool is saturated.
+     *
+     * @param task the task
+     * @return true if the pool accepted the task
+     */
+    static boolean offer(Runnable task)
+    {
+        ExecutorService pool = get();
+        if (isSaturated(pool))
+        {
+            return false;
+        }
+
+        try
+        {
+            pool.execute(task);
+            return true;
+        }
+        catch (RejectedExecutionException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Executes the given tasks using the calling thread and the pool.
+     * The first task is executed by the caller, the others are offered to the pool; afterwards the caller
+     * executes any task the pool has not started yet and waits for the ones in progress.
+     *
+     * @param tasks the tasks
+     * @param <T>   the type of the results
+     * @return the results, in the same order of the tasks
+     */
+    static <T> List<T> invokeAll(List<Callable<T>> tasks)
+    {
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks)
+        {
+            futures.add(new FutureTask<>(task));
+        }
+
+        for (int i = 1; i < futures.size(); i++)
+        {
+            if (!offer(futures.get(i)))
+            {
+                break;
+            }
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        try
+        {
+            for (FutureTask<T> future : futures)
+            {
+                // no-op if the task has already been started by a worker
+                future.run();
+                results.add(future.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            cancel(futures);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Computation has been interrupted", e);
+        }
+        catch (ExecutionException e)
+        {
+            cancel(futures);
+            throw new IllegalStateException("Computation failed", e.getCause());
+        }
+        return results;
+    }
+
+    private static void cancel(List<? extends FutureTask<?>> futures)
+    {
+        for (FutureTask<?> future : futures)
+        {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * A {@link ThreadPoolExecutor} is saturated when all its threads are busy, so that a new task
+     * would wait in the queue behind other computations. Other {@link ExecutorService}s are never considered saturated.
+     *
+     * @param pool the pool
+     * @return true if new tasks would be queued
+     */
+    static boolean isSaturated(ExecutorService pool)
+    {
+        if (pool instanceof ThreadPoolExecutor)
+        {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) pool;
+            return !executor.getQueue().isEmpty() || executor.getActiveCount() >= executor.getMaximumPoolSize();
+        }
+        return false;
+    }
+
+    private static ExecutorService load()
+    {
+        Iterator<ExecutorServiceProvider> providers = ServiceLoader.load(ExecutorServiceProvider.class).iterator();
+        if (providers.hasNext())
+        {
+            ExecutorServiceProvider provider = providers.next();
+            ExecutorService provided = provider.getExecutorService();
+            if (provided != null)
+            {
+                LOG.debug("Using ExecutorService provided by {}", provider.getClass().getName());
+                owned = false;
+                return provided;
+            }
+        }
+
+        int size = PropertyReader.readInt("global.pool.size", Utils.AVAILABLE_PROCESSORS);
+        String name = PropertyReader.readString("global.pool.name", "password4j-worker");
+        owned = true;
+        return Utils.createExecutorService(size, name);
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j.types;
+
+/**
+ * Enum containing the places where memory-hard functions
+ * can store their working memory.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+public enum MemoryBackend
+{
+    /**
+     * The working memory is made of Java arrays allocated in the heap.
+     */
+    HEAP,
+
+    /**
+     * The working memory is made of direct buffers allocated outside the heap.
+     * It is explicitly zeroed after each hash and does not put pressure on the garbage collector,
+     * at the cost of copying each block in and out of the heap during the computation.
+     */
+    OFF_HEAP;
+
+}
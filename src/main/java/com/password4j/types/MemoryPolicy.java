@@ -0,0 +1,45 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j.types;
+
+/**
+ * Enum containing the behaviours of the memory budget
+ * when a memory-hard function asks for more memory than the available one.
+ *
+ * @author David Bertoldi
+ * @see com.password4j.MemoryBudget
+ * @since 1.8.5
+ */
+public enum MemoryPolicy
+{
+    /**
+     * The calling thread waits until enough memory is given back.
+     */
+    BLOCK,
+
+    /**
+     * The calling thread waits at most {@code global.memory.timeout} milliseconds,
+     * then a {@link com.password4j.MemoryBudgetExceededException} is thrown.
+     */
+    TIMEOUT,
+
+    /**
+     * A {@link com.password4j.MemoryBudgetExceededException} is thrown immediately.
+     */
+    REJECT;
+
+}
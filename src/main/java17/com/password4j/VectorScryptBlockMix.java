@@ -0,0 +1,123 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of {@link ScryptBlockMix} based on the Vector API.
+ * <p>
+ * The 16 words of each chunk are stored by diagonals, so that the four quarter-rounds
+ * of a column round are computed at once on four vectors:
+ * {@code (x0, x5, x10, x15)}, {@code (x4, x9, x14, x3)}, {@code (x8, x13, x2, x7)} and {@code (x12, x1, x6, x11)}.
+ * The row round works on the same vectors after rotating the lanes of the last three.
+ * The running value of BlockMix is kept in the vectors across the {@code 2 * r} chunks.
+ * <p>
+ * This class is compiled for Java 17+ and is loaded only when {@code hash.scrypt.vector} is {@code true}
+ * and the module {@code jdk.incubator.vector} is available.
+ *
+ * @author David Bertoldi
+ * @since 1.8.5
+ */
+final class VectorScryptBlockMix implements ScryptBlockMix
+{
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_128;
+
+    /**
+     * Position of the i-th word of a chunk
+     */
+    private static final int[] ORDER = {0, 13, 10, 7, 4, 1, 14, 11, 8, 5, 2, 15, 12, 9, 6, 3};
+
+    private static final VectorShuffle<Integer> ROTATE_1 = VectorShuffle.fromValues(SPECIES, 1, 2, 3, 0);
+
+    private static final VectorShuffle<Integer> ROTATE_2 = VectorShuffle.fromValues(SPECIES, 2, 3, 0, 1);
+
+    private static final VectorShuffle<Integer> ROTATE_3 = VectorShuffle.fromValues(SPECIES, 3, 0, 1, 2);
+
+    VectorScryptBlockMix()
+    {
+        if (IntVector.SPECIES_PREFERRED.vectorBitSize() < SPECIES.vectorBitSize())
+        {
+            throw new UnsupportedOperationException("128-bit vectors are not supported by this CPU");
+        }
+    }
+
+    @Override
+    public int[] order()
+    {
+        return ORDER.clone();
+    }
+
+    @Override
+    public void blockMix(int[] xyArray, int bi, int yi, int resources)
+    {
+        int last = bi + (2 * resources - 1) * 16;
+        IntVector a = IntVector.fromArray(SPECIES, xyArray, last);
+        IntVector b = IntVector.fromArray(SPECIES, xyArray, last + 4);
+        IntVector c = IntVector.fromArray(SPECIES, xyArray, last + 8);
+        IntVector d = IntVector.fromArray(SPECIES, xyArray, last + 12);
+
+        for (int i = 0; i < 2 * resources; i++)
+        {
+            int in = bi + i * 16;
+            a = a.lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, xyArray, in));
+            b = b.lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, xyArray, in + 4));
+            c = c.lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, xyArray, in + 8));
+            d = d.lanewise(VectorOperators.XOR, IntVector.fromArray(SPECIES, xyArray, in + 12));
+
+            IntVector a0 = a;
+            IntVector b0 = b;
+            IntVector c0 = c;
+            IntVector d0 = d;
+            for (int j = 0; j < 4; j++)
+            {
+                // columns
+                b = b.lanewise(VectorOperators.XOR, a.add(d).lanewise(VectorOperators.ROL, 7));
+                c = c.lanewise(VectorOperators.XOR, b.add(a).lanewise(VectorOperators.ROL, 9));
+                d = d.lanewise(VectorOperators.XOR, c.add(b).lanewise(VectorOperators.ROL, 13));
+                a = a.lanewise(VectorOperators.XOR, d.add(c).lanewise(VectorOperators.ROL, 18));
+
+                // rows
+                IntVector q = b.rearrange(ROTATE_3);
+                IntVector r = c.rearrange(ROTATE_2);
+                IntVector p = d.rearrange(ROTATE_1);
+                p = p.lanewise(VectorOperators.XOR, a.add(q).lanewise(VectorOperators.ROL, 7));
+                r = r.lanewise(VectorOperators.XOR, p.add(a).lanewise(VectorOperators.ROL, 9));
+                q = q.lanewise(VectorOperators.XOR, r.add(p).lanewise(VectorOperators.ROL, 13));
+                a = a.lanewise(VectorOperators.XOR, q.add(r).lanewise(VectorOperators.ROL, 18));
+                b = q.rearrange(ROTATE_1);
+                c = r.rearrange(ROTATE_2);
+                d = p.rearrange(ROTATE_3);
+            }
+            a = a.add(a0);
+            b = b.add(b0);
+            c = c.add(c0);
+            d = d.add(d0);
+
+            int out = yi + ((i & 1) * resources + (i >> 1)) * 16;
+            a.intoArray(xyArray, out);
+            b.intoArray(xyArray, out + 4);
+            c.intoArray(xyArray, out + 8);
+            d.intoArray(xyArray, out + 12);
+        }
+    }
+
+}
@@ -18,16 +18,21 @@ package com.password4j;
 
 import com.password4j.types.Argon2;
 import com.password4j.types.Bcrypt;
+import com.password4j.types.MemoryBackend;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.*;
 
+import static com.password4j.Argon2Function.ARGON2_QWORDS_IN_BLOCK;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 
@@ -148,6 +153,108 @@ public class Argon2FunctionTest
     }
 
 
+    @Test
+    public void testFlatLayout()
+    {
+        for (TestCase test : CASES)
+        {
+            Argon2Function f = new Argon2Function(test.memory, test.iterations, test.parallelism, test.outLength, test.type,
+                    test.version, BlockMemory.Layout.FLAT, MemoryBackend.HEAP);
+            assertEquals(test.expected, f.hash(test.plainTextPassword, test.salt).getResult());
+        }
+    }
+
+
+    @Test
+    public void testOffHeap()
+    {
+        for (TestCase test : CASES)
+        {
+            Argon2Function f = Argon2Function.getInstance(test.memory, test.iterations, test.parallelism, test.outLength, test.type,
+                    test.version, MemoryBackend.OFF_HEAP);
+            assertEquals(test.expected, f.hash(test.plainTextPassword, test.salt).getResult());
+            assertEquals(MemoryBackend.OFF_HEAP, f.getMemoryBackend());
+        }
+    }
+
+    @Test
+    public void testBackendIsPartOfTheInstance()
+    {
+        // GIVEN
+        Argon2Function heap = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13, MemoryBackend.HEAP);
+
+        // WHEN
+        Argon2Function offHeap = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13,
+                MemoryBackend.OFF_HEAP);
+
+        // THEN
+        Assert.assertNotSame(heap, offHeap);
+        Assert.assertSame(offHeap, Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13,
+                MemoryBackend.OFF_HEAP));
+        Assert.assertEquals(MemoryBackend.HEAP, heap.getMemoryBackend());
+    }
+
+    @Test
+    public void testLanesOnSingleWorker()
+    {
+        // GIVEN
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        WorkerPool.setExecutorService(single);
+
+        try
+        {
+            for (TestCase test : CASES)
+            {
+                // WHEN
+                Argon2Function f = new Argon2Function(test.memory, test.iterations, test.parallelism, test.outLength, test.type,
+                        test.version);
+
+                // THEN
+                assertEquals(test.expected, f.hash(test.plainTextPassword, test.salt).getResult());
+            }
+        }
+        finally
+        {
+            WorkerPool.setExecutorService(null);
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testAllocationDoesNotScaleWithMemory()
+    {
+        // GIVEN
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        Argon2Function small = Argon2Function.getInstance(1024, 2, 1, 32, Argon2.ID);
+        Argon2Function big = Argon2Function.getInstance(8192, 2, 1, 32, Argon2.ID);
+
+        // WHEN
+        long smallAllocation = allocatedBytes(threadBean, small);
+        long bigAllocation = allocatedBytes(threadBean, big);
+
+        // THEN
+        // the old compression function allocated 2 KiB for each block of each pass (~28 MiB here)
+        Assert.assertTrue("Allocated " + bigAllocation + " bytes vs " + smallAllocation,
+                bigAllocation - smallAllocation < 256 * 1024);
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threadBean, Argon2Function function)
+    {
+        long threadId = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++)
+        {
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            function.hash("password", "saltsalt");
+            best = Math.min(best, threadBean.getThreadAllocatedBytes(threadId) - before);
+        }
+        return best;
+    }
+
     @Test
     public void parallelTest() throws InterruptedException, ExecutionException
     {
@@ -302,7 +409,127 @@ public class Argon2FunctionTest
         }
     }
 
+    @Test
+    public void testReleaseWorkingMemory()
+    {
+        // GIVEN
+        Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID).hash("password", "saltsalt");
+        assertTrue(Argon2Function.getIdleWorkingMemory() >= 64 * 1024);
+
+        // WHEN
+        Argon2Function.releaseWorkingMemory();
 
+        // THEN
+        assertEquals(0, Argon2Function.getIdleWorkingMemory());
+    }
 
+    @Test
+    public void testLanePhasersBeyondMaxParties()
+    {
+        // GIVEN
+        int lanes = Argon2Function.MAX_PHASER_PARTIES + 5000;
+
+        // WHEN
+        Phaser[] phasers = Argon2Function.lanePhasers(lanes, 2);
+        for (int lane = 0; lane < lanes; lane++)
+        {
+            phasers[lane / Argon2Function.MAX_PHASER_PARTIES].arrive();
+        }
+
+        // THEN
+        assertEquals(2, phasers.length);
+        assertEquals(1, phasers[0].getPhase());
+        assertEquals(1, phasers[1].getPhase());
+        for (int lane = 0; lane < lanes; lane++)
+        {
+            phasers[lane / Argon2Function.MAX_PHASER_PARTIES].arrive();
+        }
+        assertTrue(phasers[0].isTerminated());
+        assertTrue(phasers[1].isTerminated());
+    }
+
+    @Test
+    public void testLanePhasersWithinMaxParties()
+    {
+        // GIVEN
+        int lanes = 4;
+
+        // WHEN
+        Phaser[] phasers = Argon2Function.lanePhasers(lanes, 1);
+        for (int lane = 0; lane < lanes; lane++)
+        {
+            phasers[0].arrive();
+        }
+
+        // THEN
+        assertEquals(1, phasers.length);
+        assertTrue(phasers[0].isTerminated());
+    }
+
+    @Test
+    public void testGetInstanceFromHashStringThenCheck()
+    {
+        // GIVEN
+        Argon2Function function = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID);
+        String hash = function.hash("password", "saltsalt").getResult();
+
+        // WHEN
+        Argon2Function fromHash = Argon2Function.getInstanceFromHash(hash);
+
+        // THEN
+        assertEquals(function, fromHash);
+        assertTrue(fromHash.check("password", hash));
+        assertTrue(fromHash.check("password".getBytes(), hash.getBytes()));
+        assertEquals(function, Argon2Function.getInstanceFromHash(hash));
+    }
+
+    @Test
+    public void testGetInstanceFromHashBytesIsParsedOnce()
+    {
+        // GIVEN
+        Argon2Function function = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID);
+        byte[] hash = function.hash("password", "saltsalt").getResultAsBytes();
+
+        // WHEN
+        Argon2Function fromHash = Argon2Function.getInstanceFromHash(hash);
+
+        // THEN
+        assertEquals(function, fromHash);
+        assertTrue(Argon2Function.isParsed(hash));
+        assertTrue(fromHash.check("password".getBytes(), hash));
+        assertFalse(Argon2Function.isParsed(hash));
+    }
+
+    @Test
+    public void testGetInstanceFromHashStringIsNotKept()
+    {
+        // GIVEN
+        Argon2Function function = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID);
+        String hash = function.hash("password", "saltsalt").getResult();
+
+        // WHEN
+        Argon2Function.getInstanceFromHash(hash);
+
+        // THEN
+        assertFalse(Argon2Function.isParsed(hash.getBytes()));
+    }
+
+    @Test
+    public void testUpdateArgon2()
+    {
+        // GIVEN
+        Argon2Function function = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID);
+        Argon2Function newFunction = Argon2Function.getInstance(128, 1, 1, 32, Argon2.ID);
+        byte[] hash = function.hash("password", "saltsalt").getResultAsBytes();
+
+        // WHEN
+        HashUpdate update = Password.check("password".getBytes(), hash).andUpdate().withArgon2(newFunction);
+
+        // THEN
+        assertTrue(update.isVerified());
+        assertTrue(update.isUpdated());
+        assertTrue(newFunction.check("password", update.getHash().getResult()));
+        assertFalse(Argon2Function.isParsed(hash));
+    }
 
 }
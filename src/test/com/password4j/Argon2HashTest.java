@@ -0,0 +1,177 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Argon2;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+public class Argon2HashTest
+{
+
+    private static final String HASH = "$argon2id$v=19$m=1024,t=3,p=2$c29tZXNhbHQ$nHKjnvd/mFwr7M6Pb2kRDdFy7j6pS+DDJXQ3Mx6c5w8";
+
+    @Test
+    public void testParse()
+    {
+        // GIVEN
+        Argon2Hash parsed = new Argon2Hash();
+
+        // WHEN
+        boolean valid = parsed.parse(HASH);
+
+        // THEN
+        Assert.assertTrue(valid);
+        Assert.assertEquals(Argon2.ID, parsed.getType());
+        Assert.assertEquals(19, parsed.getVersion());
+        Assert.assertEquals(1024, parsed.getMemory());
+        Assert.assertEquals(3, parsed.getIterations());
+        Assert.assertEquals(2, parsed.getParallelism());
+        Assert.assertEquals(8, parsed.getSaltLength());
+        Assert.assertEquals(32, parsed.getDigestLength());
+    }
+
+    @Test
+    public void testDecodeIntoBuffer()
+    {
+        // GIVEN
+        Argon2Hash parsed = new Argon2Hash();
+        parsed.parse(HASH.getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[2 + parsed.getSaltLength() + parsed.getDigestLength()];
+
+        // WHEN
+        int saltLength = parsed.decodeSalt(buffer, 2);
+        int digestLength = parsed.decodeDigest(buffer, 2 + saltLength);
+
+        // THEN
+        Assert.assertEquals(8, saltLength);
+        Assert.assertEquals(32, digestLength);
+        Assert.assertEquals("somesalt", new String(buffer, 2, 8, StandardCharsets.UTF_8));
+        Assert.assertArrayEquals(Utils.decodeBase64("nHKjnvd/mFwr7M6Pb2kRDdFy7j6pS+DDJXQ3Mx6c5w8"),
+                Arrays.copyOfRange(buffer, 10, 42));
+    }
+
+    @Test
+    public void testSameAsBase64()
+    {
+        for (int saltLength = 0; saltLength < 20; saltLength++)
+        {
+            // GIVEN
+            byte[] salt = new byte[saltLength];
+            for (int i = 0; i < saltLength; i++)
+            {
+                salt[i] = (byte) (i * 37 - 100);
+            }
+            String hash = "$argon2i$v=16$m=64,t=1,p=1$" + Utils.encodeBase64(salt, false) + "$AAAA";
+            Argon2Hash parsed = new Argon2Hash();
+
+            // WHEN
+            Assert.assertTrue(parsed.parse(hash));
+            byte[] decoded = new byte[parsed.getSaltLength()];
+            parsed.decodeSalt(decoded, 0);
+
+            // THEN
+            Assert.assertEquals(Argon2.I, parsed.getType());
+            Assert.assertArrayEquals(salt, decoded);
+        }
+    }
+
+    @Test
+    public void testPadding()
+    {
+        // GIVEN
+        Argon2Hash parsed = new Argon2Hash();
+
+        // WHEN
+        boolean valid = parsed.parse("$argon2d$v=19$m=64,t=1,p=1$c2FsdA==$YWJj");
+
+        // THEN
+        Assert.assertTrue(valid);
+        Assert.assertEquals(Argon2.D, parsed.getType());
+        Assert.assertEquals(4, parsed.getSaltLength());
+        Assert.assertEquals(3, parsed.getDigestLength());
+    }
+
+    @Test
+    public void testMalformed()
+    {
+        String[] hashes = {"", "$argon2", "$argon2x$v=19$m=64,t=1,p=1$c2FsdA$YWJj", "$argon2id$bad",
+                "$argon2id$v=$m=64,t=1,p=1$c2FsdA$YWJj", "$argon2id$v=19$m=64,p=1,t=1$c2FsdA$YWJj",
+                "$argon2id$v=19$m=99999999999,t=1,p=1$c2FsdA$YWJj", "$argon2id$v=19$m=64,t=1,p=1$c2FsdA$",
+                "$argon2id$v=19$m=64,t=1,p=1$c2FsdA", "$argon2id$v=19$m=64,t=1,p=1$c2FsdAxyz$YWJj",
+                "$argon2id$v=19$m=64,t=1,p=1$c2FsdA$YW*j", "$argon2id$v=19$m=64,t=1,p=1$c2FsdA$YWJj$",
+                "$argon2id$v=19$m=-64,t=1,p=1$c2FsdA$YWJj"};
+
+        for (String hash : hashes)
+        {
+            // GIVEN
+            Argon2Hash parsed = new Argon2Hash();
+
+            // WHEN
+            boolean valid = parsed.parse(hash);
+
+            // THEN
+            Assert.assertFalse(hash, valid);
+            Assert.assertNull(hash, parsed.getType());
+        }
+    }
+
+    @Test
+    public void testIsParsed()
+    {
+        // GIVEN
+        Argon2Hash parsed = new Argon2Hash();
+        parsed.parse(HASH);
+
+        // WHEN
+        boolean same = parsed.isParsed(HASH.getBytes(StandardCharsets.UTF_8));
+        boolean other = parsed.isParsed(HASH.replace("p=2", "p=3").getBytes(StandardCharsets.UTF_8));
+        parsed.reset();
+
+        // THEN
+        Assert.assertTrue(same);
+        Assert.assertFalse(other);
+        Assert.assertFalse(parsed.isParsed(HASH.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testFunctionParsesOnce()
+    {
+        // GIVEN
+        Argon2Function function = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID);
+        byte[] hash = function.hash("password", "saltsalt").getResultAsBytes();
+
+        // WHEN
+        Argon2Function fromHash = Argon2Function.getInstanceFromHash(hash);
+
+        // THEN
+        Assert.assertSame(function, fromHash);
+        Assert.assertTrue(fromHash.check("password".getBytes(StandardCharsets.UTF_8), hash));
+        Assert.assertFalse(fromHash.check("wrong".getBytes(StandardCharsets.UTF_8), hash));
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testInvalidFromHash()
+    {
+        Argon2Function.getInstanceFromHash("$argon2id$v=19$m=64,t=1,p=1$c2FsdA");
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Bcrypt;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+public class AsyncPoolTest
+{
+
+    @After
+    public void tearDown()
+    {
+        AsyncPool.setExecutorService(null);
+    }
+
+    @Test
+    public void testHash() throws Exception
+    {
+        // GIVEN
+        BcryptFunction bcrypt = BcryptFunction.getInstance(Bcrypt.B, 4);
+        final AtomicReference<String> thread = new AtomicReference<>();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>())
+        {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r)
+            {
+                // set before the hash is computed, unlike a callback of the future
+                thread.compareAndSet(null, t.getName());
+            }
+        };
+        AsyncPool.setExecutorService(pool);
+
+        // WHEN
+        Hash hash = Password.hash("password").addPepper("pepper").async().with(bcrypt).get();
+
+        // THEN
+        Assert.assertTrue(Password.check("password", hash.getResult()).addPepper("pepper").with(bcrypt));
+        Assert.assertTrue(Password.check("password", hash.getResult()).addPepper("pepper").async().with(bcrypt).get());
+        Assert.assertFalse(Password.check("wrong", hash.getResult()).addPepper("pepper").async().withBcrypt().get());
+        Assert.assertNotNull(thread.get());
+        Assert.assertNotEquals(Thread.currentThread().getName(), thread.get());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testDefaultAlgorithm() throws Exception
+    {
+        // GIVEN
+        Hash expected = Password.hash("password").addSalt("saltsalt").withScrypt();
+
+        // WHEN
+        Hash hash = Password.hash("password").addSalt("saltsalt").async().withScrypt().get();
+
+        // THEN
+        Assert.assertEquals(expected, hash);
+    }
+
+    @Test
+    public void testFailure() throws InterruptedException
+    {
+        // GIVEN
+        CompletableFuture<Boolean> future = Password.check("password", "$argon2id$bad").async().withArgon2();
+
+        try
+        {
+            // WHEN
+            future.get();
+            Assert.fail();
+        }
+        catch (ExecutionException e)
+        {
+            // THEN
+            Assert.assertTrue(e.getCause() instanceof BadParametersException);
+        }
+        Assert.assertEquals(0, AsyncPool.getPending());
+    }
+
+    @Test
+    public void testRejection() throws InterruptedException
+    {
+        // GIVEN
+        ExecutorService pool = Utils.createExecutorService(1, 1, AsyncPool.rejection("abort"), "test-async");
+        AsyncPool.setExecutorService(pool);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch busy = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = AsyncPool.submit(() -> {
+            busy.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        busy.await();
+        CompletableFuture<Boolean> queued = AsyncPool.submit(() -> true);
+
+        // WHEN
+        CompletableFuture<Boolean> rejected = AsyncPool.submit(() -> true);
+
+        // THEN
+        int pending = AsyncPool.getPending();
+        release.countDown();
+        Assert.assertTrue(rejected.isCompletedExceptionally());
+        Assert.assertEquals(2, pending);
+        try
+        {
+            rejected.join();
+            Assert.fail();
+        }
+        catch (RuntimeException e)
+        {
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        Assert.assertTrue(running.join());
+        Assert.assertTrue(queued.join());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testCallerRuns()
+    {
+        // WHEN
+        ThreadPoolExecutor.CallerRunsPolicy policy = (ThreadPoolExecutor.CallerRunsPolicy) AsyncPool.rejection("CALLER_RUNS");
+
+        // THEN
+        Assert.assertNotNull(policy);
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadRejection()
+    {
+        AsyncPool.rejection("discard");
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadQueueSize()
+    {
+        Utils.createExecutorService(1, 0, AsyncPool.rejection("abort"), "test");
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Argon2;
+import com.password4j.types.Bcrypt;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+public class BatchCheckerTest
+{
+
+    @After
+    public void tearDown()
+    {
+        WorkerPool.setExecutorService(null);
+    }
+
+    @Test
+    public void testResultsInOrder()
+    {
+        // GIVEN
+        Argon2Function argon2 = Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID);
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        for (int i = 0; i < 10; i++)
+        {
+            String hash = Password.hash("password" + i).addRandomSalt().with(argon2).getResult();
+            pairs.add(new AbstractMap.SimpleEntry<>(i % 3 == 0 ? "wrong" : "password" + i, hash));
+        }
+
+        // WHEN
+        List<Boolean> results = Password.checkAll(pairs).with(argon2);
+
+        // THEN
+        Assert.assertEquals(10, results.size());
+        for (int i = 0; i < 10; i++)
+        {
+            Assert.assertEquals(i % 3 != 0, results.get(i));
+        }
+    }
+
+    @Test
+    public void testSameAsSingleCheck()
+    {
+        // GIVEN
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        WorkerPool.setExecutorService(pool);
+        BcryptFunction bcrypt = BcryptFunction.getInstance(Bcrypt.B, 4);
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            String hash = Password.hash("pepper" + "password" + (i / 2)).with(bcrypt).getResult();
+            pairs.add(new AbstractMap.SimpleEntry<>("password" + (i % 2 == 0 ? i / 2 : i), hash));
+        }
+
+        // WHEN
+        List<Boolean> results = Password.checkAll(pairs).addPepper("pepper").withInFlight(2).with(bcrypt);
+
+        // THEN
+        pool.shutdown();
+        for (int i = 0; i < 20; i++)
+        {
+            boolean expected = Password.check(pairs.get(i).getKey(), pairs.get(i).getValue()).addPepper("pepper").with(bcrypt);
+            Assert.assertEquals(expected, results.get(i));
+            Assert.assertEquals(i % 2 == 0, results.get(i));
+        }
+    }
+
+    @Test
+    public void testNullOrEmptyPassword()
+    {
+        // GIVEN
+        MessageDigestFunction function = MessageDigestFunction.getInstance("SHA-256");
+        String hash = Password.hash("password").with(function).getResult();
+        List<Map.Entry<String, String>> pairs = Arrays.<Map.Entry<String, String>>asList(
+                new AbstractMap.SimpleEntry<>(null, hash),
+                new AbstractMap.SimpleEntry<>("", hash),
+                new AbstractMap.SimpleEntry<>("password", hash));
+
+        // WHEN
+        List<Boolean> results = Password.checkAll(pairs).with(function);
+
+        // THEN
+        Assert.assertEquals(Arrays.asList(false, false, true), results);
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        // GIVEN
+        List<Map.Entry<String, String>> pairs = Collections.emptyList();
+
+        // WHEN
+        List<Boolean> results = Password.checkAll(pairs).withMessageDigest();
+
+        // THEN
+        Assert.assertTrue(results.isEmpty());
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testFailureIsPropagated()
+    {
+        List<Map.Entry<String, String>> pairs = Collections.<Map.Entry<String, String>>singletonList(
+                new AbstractMap.SimpleEntry<>("password", "$argon2id$bad"));
+
+        Password.checkAll(pairs).with(Argon2Function.getInstance(64, 1, 1, 32, Argon2.ID));
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testNullHash()
+    {
+        Password.checkAll(Collections.<Map.Entry<String, String>>singletonList(new AbstractMap.SimpleEntry<>("password", null)));
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testNullPairs()
+    {
+        Password.checkAll(null);
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadInFlight()
+    {
+        Password.checkAll(Collections.<Map.Entry<String, String>>emptyList()).withInFlight(0);
+    }
+
+}
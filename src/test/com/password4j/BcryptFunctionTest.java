@@ -18,8 +18,10 @@ package com.password4j;
 
 import com.password4j.types.Bcrypt;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
@@ -544,7 +546,7 @@ public class BcryptFunctionTest
 
         // WHEN
         BcryptFunction
-                .getInstance(10).cryptRaw(password.getBytes(Utils.DEFAULT_CHARSET), badSalt3.getBytes(Utils.DEFAULT_CHARSET), 6, false, 1);
+                .getInstance(10).cryptRaw(password.getBytes(Utils.DEFAULT_CHARSET), badSalt3.getBytes(Utils.DEFAULT_CHARSET), 6, 1);
     }
 
 
@@ -620,6 +622,168 @@ public class BcryptFunctionTest
         Assert.assertEquals("BcryptFunction(t=y, r=7)", bcrypt.toString());
     }
 
+    @Test
+    public void testBase64WithOffsets()
+    {
+        // GIVEN
+        byte[] bytes = new byte[40];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) (i * 53 + 7);
+        }
+
+        for (int length = 1; length < 30; length++)
+        {
+            char[] encoded = new char[3 + BcryptFunction.encodedLength(length)];
+            byte[] decoded = new byte[2 + length];
+
+            // WHEN
+            int chars = BcryptFunction.encodeBase64(bytes, 5, length, encoded, 3);
+            int read = BcryptFunction.decodeBase64(new String(encoded), 3, 3 + chars, decoded, 2, length);
+
+            // THEN
+            Assert.assertEquals(encodeBase64(Arrays.copyOfRange(bytes, 5, 5 + length), length), new String(encoded, 3, chars));
+            Assert.assertEquals(length, read);
+            Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 5, 5 + length), Arrays.copyOfRange(decoded, 2, 2 + length));
+        }
+    }
+
+    @Test
+    public void testGeneratedSalt()
+    {
+        // GIVEN
+        BcryptFunction bcrypt = BcryptFunction.getInstance(Bcrypt.Y, 5);
+
+        // WHEN
+        String salt = bcrypt.generateSalt();
+
+        // THEN
+        Assert.assertEquals(29, salt.length());
+        Assert.assertTrue(salt.startsWith("$2y$05$"));
+        Assert.assertEquals(16, BcryptFunction.decodeBase64(salt.substring(7), 16).length);
+        Assert.assertEquals(bcrypt, BcryptFunction.getInstanceFromHash(bcrypt.hash("password", salt).getResult()));
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadRoundsInHash()
+    {
+        BcryptFunction.getInstanceFromHash("$2b$1x$......................bvpG2UfzdyW/S0ny/4YyEZrmczoJfVm");
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testStreamToWords()
+    {
+        // GIVEN
+        byte[] data = {1, (byte) 0x82, 3, 4, 5};
+        int[] offp = {3};
+        int[] signp = {0};
+
+        // WHEN
+        int[] words = BcryptFunction.streamToWords(data, offp, signp);
+        int next = BcryptFunction.streamToWord(data, offp);
+
+        // THEN
+        Assert.assertArrayEquals(new int[] {0x04050182, 0x04050182}, words);
+        Assert.assertEquals(0x80, signp[0]);
+        Assert.assertEquals(0x03040501, next);
+        Assert.assertEquals(1, offp[0]);
+    }
+
+    @Test
+    public void testBlowfishStateIsReused()
+    {
+        // GIVEN
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        BcryptFunction bcrypt = BcryptFunction.getInstance(Bcrypt.A, 8);
+        String salt = bcrypt.generateSalt();
+        String expected = bcrypt.hash("pässword", salt).getResult();
+
+        // WHEN
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        String result = bcrypt.hash("pässword", salt).getResult();
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // THEN
+        Assert.assertEquals(expected, result);
+        Assert.assertTrue("allocated " + allocated + " bytes", allocated < 16 * 1024);
+    }
+
+    @Test
+    public void testCheckAll()
+    {
+        // GIVEN
+        BcryptFunction bcrypt = BcryptFunction.getInstance(Bcrypt.A, 6);
+        List<byte[]> passwords = new ArrayList<>();
+        List<byte[]> hashes = new ArrayList<>();
+        for (TestCase test : CASES)
+        {
+            if (test.rounds == 6)
+            {
+                passwords.add(test.password.getBytes(StandardCharsets.UTF_8));
+                hashes.add(test.expected.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        do
+        {
+            // an odd number of pairs leaves the last one out of the interleaved loop
+            passwords.add("pässwörd".getBytes(StandardCharsets.UTF_8));
+            hashes.add(bcrypt.hash("pässwörd").getResultAsBytes());
+        }
+        while (passwords.size() % 2 == 0);
+        passwords.set(3, "wrong".getBytes(StandardCharsets.UTF_8));
+        passwords.set(passwords.size() - 2, "wrong".getBytes(StandardCharsets.UTF_8));
+
+        // WHEN
+        boolean[] results = bcrypt.checkAll(passwords.toArray(new byte[0][]), hashes.toArray(new byte[0][]));
+
+        // THEN
+        Assert.assertEquals(1, results.length % 2);
+        for (int i = 0; i < results.length; i++)
+        {
+            Assert.assertEquals(bcrypt.check(passwords.get(i), hashes.get(i)), results[i]);
+            Assert.assertEquals(i != 3 && i != results.length - 2, results[i]);
+        }
+    }
+
+    @Test
+    public void testBatchCheckerInPairs()
+    {
+        // GIVEN
+        BcryptFunction bcrypt = BcryptFunction.getInstance(Bcrypt.B, 4);
+        List<Map.Entry<String, String>> pairs = new ArrayList<>();
+        for (int i = 0; i < 7; i++)
+        {
+            String hash = bcrypt.hash("pepper" + "password" + i).getResult();
+            pairs.add(new AbstractMap.SimpleEntry<>(i == 4 ? "" : "password" + (i == 5 ? 0 : i), hash));
+        }
+
+        // WHEN
+        List<Boolean> results = Password.checkAll(pairs).addPepper("pepper").withInFlight(1).with(bcrypt);
+
+        // THEN
+        Assert.assertEquals(Arrays.asList(true, true, true, true, false, false, true), results);
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testCheckAllDifferentLengths()
+    {
+        BcryptFunction.getInstance(4).checkAll(new byte[2][], new byte[1][]);
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testCheckAllInvalidHash()
+    {
+        byte[][] passwords = {"a".getBytes(StandardCharsets.UTF_8), "b".getBytes(StandardCharsets.UTF_8)};
+        byte[][] hashes = {"$2a$04$invalid".getBytes(StandardCharsets.UTF_8), "$2a$04$invalid".getBytes(StandardCharsets.UTF_8)};
+
+        BcryptFunction.getInstance(4).checkAll(passwords, hashes);
+    }
+
     @Test
     public void testOWASP()
     {
@@ -0,0 +1,107 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.MemoryBackend;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class BlockMemoryTest
+{
+
+    @Test
+    public void testFlatChunks()
+    {
+        // GIVEN
+        BlockMemory.Flat memory = new BlockMemory.Flat(5, 1, 1);
+
+        // WHEN
+        long[] first = memory.array(0);
+        long[] last = memory.array(4);
+
+        // THEN
+        Assert.assertSame(first, memory.array(1));
+        Assert.assertNotSame(first, memory.array(2));
+        Assert.assertEquals(0, memory.offset(0));
+        Assert.assertEquals(BlockMemory.QWORDS_IN_BLOCK, memory.offset(3));
+        Assert.assertEquals(0, memory.offset(4));
+        Assert.assertEquals(2 * BlockMemory.QWORDS_IN_BLOCK, first.length);
+        Assert.assertEquals(BlockMemory.QWORDS_IN_BLOCK, last.length);
+        Assert.assertEquals(5, memory.blocks());
+    }
+
+    @Test
+    public void testWipe()
+    {
+        for (BlockMemory memory : allMemories(3, 2))
+        {
+            // GIVEN
+            long[] block = new long[BlockMemory.QWORDS_IN_BLOCK];
+            for (int i = 0; i < 3; i++)
+            {
+                block[BlockMemory.QWORDS_IN_BLOCK - 1] = i + 1;
+                memory.store(i, block);
+            }
+            memory.scratch(1).r[0] = 42;
+
+            // WHEN
+            memory.wipe();
+
+            // THEN
+            for (int i = 0; i < 3; i++)
+            {
+                Assert.assertEquals(0, memory.qword(i, BlockMemory.QWORDS_IN_BLOCK - 1));
+            }
+            Assert.assertEquals(0, memory.scratch(1).r[0]);
+        }
+    }
+
+    @Test
+    public void testLoadAndStore()
+    {
+        for (BlockMemory memory : allMemories(5, 1))
+        {
+            // GIVEN
+            long[] block = new long[BlockMemory.QWORDS_IN_BLOCK];
+            for (int i = 0; i < block.length; i++)
+            {
+                block[i] = -i;
+            }
+
+            // WHEN
+            memory.store(3, block);
+            long[] loaded = new long[BlockMemory.QWORDS_IN_BLOCK];
+            memory.load(3, loaded);
+
+            // THEN
+            Assert.assertArrayEquals(block, loaded);
+            Assert.assertEquals(-7, memory.qword(3, 7));
+            Assert.assertEquals(0, memory.qword(2, 7));
+            Assert.assertEquals(0, memory.qword(4, 0));
+            memory.free();
+        }
+    }
+
+    private static BlockMemory[] allMemories(int blocks, int lanes)
+    {
+        return new BlockMemory[]{BlockMemory.allocate(BlockMemory.Layout.MATRIX, MemoryBackend.HEAP, blocks, lanes),
+                BlockMemory.allocate(BlockMemory.Layout.FLAT, MemoryBackend.HEAP, blocks, lanes),
+                new BlockMemory.Flat(blocks, lanes, 1), new BlockMemory.OffHeap(blocks, lanes, 1)};
+    }
+
+}
@@ -0,0 +1,235 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Argon2;
+import com.password4j.types.Bcrypt;
+import com.password4j.types.Hmac;
+import com.password4j.types.MemoryBackend;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+
+public class InstanceRegistryTest
+{
+
+    @Before
+    public void setUp()
+    {
+        InstanceRegistry.clear();
+    }
+
+    @After
+    public void tearDown()
+    {
+        InstanceRegistry.setCapacity(256);
+        InstanceRegistry.clear();
+    }
+
+    @Test
+    public void testCounters()
+    {
+        // GIVEN
+        BcryptFunction first = BcryptFunction.getInstance(Bcrypt.B, 10);
+
+        // WHEN
+        BcryptFunction second = BcryptFunction.getInstance(Bcrypt.B, 10);
+        BcryptFunction other = BcryptFunction.getInstance(Bcrypt.Y, 10);
+
+        // THEN
+        Assert.assertSame(first, second);
+        Assert.assertNotEquals(first, other);
+        Assert.assertEquals(1, InstanceRegistry.getHits());
+        Assert.assertEquals(2, InstanceRegistry.getMisses());
+        Assert.assertEquals(2, InstanceRegistry.getSize());
+    }
+
+    @Test
+    public void testKeysDoNotCollide()
+    {
+        // GIVEN
+        List<HashingFunction> functions = new ArrayList<>();
+
+        // WHEN
+        functions.add(PBKDF2Function.getInstance(Hmac.SHA256, 1000, 256));
+        functions.add(CompressedPBKDF2Function.getInstance(Hmac.SHA256, 1000, 256));
+        functions.add(PBKDF2Function.getInstance(Hmac.SHA512, 1000, 256));
+        functions.add(ScryptFunction.getInstance(1024, 8, 1, 32));
+        functions.add(ScryptFunction.getInstance(1024, 1, 8, 32));
+        functions.add(MessageDigestFunction.getInstance("SHA-256"));
+        functions.add(MessageDigestFunction.getInstance("SHA-512"));
+        functions.add(BalloonHashingFunction.getInstance("SHA-256", 16, 20, 4, 4));
+        functions.add(BalloonHashingFunction.getInstance("SHA-256", 20, 16, 4, 4));
+        functions.add(Argon2Function.getInstance(1024, 2, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13));
+        functions.add(Argon2Function.getInstance(1024, 2, 1, 32, Argon2.I, Argon2Function.ARGON2_VERSION_13));
+        functions.add(Argon2Function.getInstance(1024, 2, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_10));
+        functions.add(Argon2Function.getInstance(1024, 2, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13, MemoryBackend.OFF_HEAP));
+
+        // THEN
+        Assert.assertEquals(functions.size(), InstanceRegistry.getSize());
+        for (int i = 0; i < functions.size(); i++)
+        {
+            for (int j = i + 1; j < functions.size(); j++)
+            {
+                Assert.assertNotSame(functions.get(i), functions.get(j));
+            }
+        }
+        Assert.assertSame(functions.get(1), CompressedPBKDF2Function.getInstance(Hmac.SHA256, 1000, 256));
+        Assert.assertSame(functions.get(5), MessageDigestFunction.getInstance(new String("SHA-256")));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted()
+    {
+        // GIVEN
+        InstanceRegistry.setCapacity(2);
+        BcryptFunction first = BcryptFunction.getInstance(Bcrypt.B, 4);
+        BcryptFunction second = BcryptFunction.getInstance(Bcrypt.B, 5);
+        BcryptFunction.getInstance(Bcrypt.B, 4);
+
+        // WHEN
+        BcryptFunction.getInstance(Bcrypt.B, 6);
+
+        // THEN
+        Assert.assertEquals(2, InstanceRegistry.getSize());
+        Assert.assertEquals(1, InstanceRegistry.getEvictions());
+        Assert.assertSame(first, BcryptFunction.getInstance(Bcrypt.B, 4));
+        Assert.assertNotSame(second, BcryptFunction.getInstance(Bcrypt.B, 5));
+    }
+
+    @Test
+    public void testShrink()
+    {
+        // GIVEN
+        for (int i = 4; i < 14; i++)
+        {
+            BcryptFunction.getInstance(Bcrypt.B, i);
+        }
+
+        // WHEN
+        InstanceRegistry.setCapacity(3);
+
+        // THEN
+        Assert.assertEquals(3, InstanceRegistry.getSize());
+        Assert.assertEquals(7, InstanceRegistry.getEvictions());
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        // GIVEN
+        InstanceRegistry.setCapacity(0);
+
+        // WHEN
+        BcryptFunction first = BcryptFunction.getInstance(Bcrypt.B, 4);
+        BcryptFunction second = BcryptFunction.getInstance(Bcrypt.B, 4);
+
+        // THEN
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(0, InstanceRegistry.getSize());
+    }
+
+    @Test
+    public void testConcurrentLookupsShareOneInstance()
+    {
+        // GIVEN
+        List<Callable<ScryptFunction>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            tasks.add(() -> ScryptFunction.getInstance(2048, 4, 2));
+        }
+
+        // WHEN
+        List<ScryptFunction> results = WorkerPool.invokeAll(tasks);
+
+        // THEN
+        for (ScryptFunction function : results)
+        {
+            Assert.assertSame(results.get(0), function);
+        }
+    }
+
+    @Test
+    public void testConcurrentCounters()
+    {
+        // GIVEN
+        BcryptFunction.getInstance(Bcrypt.B, 4);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+        {
+            tasks.add(() -> {
+                for (int j = 0; j < 1000; j++)
+                {
+                    BcryptFunction.getInstance(Bcrypt.B, 4);
+                }
+                return null;
+            });
+        }
+
+        // WHEN
+        WorkerPool.invokeAll(tasks);
+
+        // THEN
+        Assert.assertEquals(8000, InstanceRegistry.getHits());
+        Assert.assertEquals(1, InstanceRegistry.getMisses());
+        Assert.assertEquals(1, InstanceRegistry.getSize());
+    }
+
+    @Test
+    public void testHitsDoNotAllocate()
+    {
+        // GIVEN
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        for (int i = 0; i < 20_000; i++)
+        {
+            Argon2Function.getInstance(1024, 2, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13);
+            PBKDF2Function.getInstance(Hmac.SHA256, 1000, 256);
+        }
+
+        // WHEN
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++)
+        {
+            Argon2Function.getInstance(1024, 2, 1, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13);
+            PBKDF2Function.getInstance(Hmac.SHA256, 1000, 256);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // THEN
+        // building the old String keys allocated more than 100 bytes per lookup
+        Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 64 * 1024);
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadCapacity()
+    {
+        InstanceRegistry.setCapacity(-1);
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class MemoryArenaTest
+{
+
+    private static MemoryArena<long[]> arena(int capacity)
+    {
+        return new MemoryArena<long[]>(capacity)
+        {
+            @Override
+            protected long[] allocate(long key)
+            {
+                return new long[(int) key];
+            }
+
+            @Override
+            protected void wipe(long[] resource)
+            {
+                Arrays.fill(resource, 0);
+            }
+        };
+    }
+
+    @Test
+    public void testReuse()
+    {
+        // GIVEN
+        MemoryArena<long[]> arena = arena(2);
+        long[] first = arena.lease(8);
+        Arrays.fill(first, 42);
+
+        // WHEN
+        arena.release(8, first);
+        long[] second = arena.lease(8);
+
+        // THEN
+        Assert.assertSame(first, second);
+        Assert.assertArrayEquals(new long[8], second);
+        Assert.assertEquals(0, arena.getIdle());
+    }
+
+    @Test
+    public void testDifferentKeys()
+    {
+        // GIVEN
+        MemoryArena<long[]> arena = arena(2);
+        long[] first = arena.lease(8);
+        arena.release(8, first);
+
+        // WHEN
+        long[] second = arena.lease(16);
+
+        // THEN
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(16, second.length);
+        Assert.assertEquals(1, arena.getIdle());
+    }
+
+    @Test
+    public void testCapacity()
+    {
+        // GIVEN
+        MemoryArena<long[]> arena = arena(2);
+        long[] first = arena.lease(1);
+        long[] second = arena.lease(2);
+        long[] third = arena.lease(3);
+
+        // WHEN
+        arena.release(1, first);
+        arena.release(2, second);
+        arena.release(3, third);
+
+        // THEN
+        Assert.assertEquals(2, arena.getIdle());
+        Assert.assertNotSame(first, arena.lease(1));
+        Assert.assertSame(second, arena.lease(2));
+        Assert.assertSame(third, arena.lease(3));
+    }
+
+    @Test
+    public void testNoCapacity()
+    {
+        // GIVEN
+        MemoryArena<long[]> arena = arena(0);
+        long[] first = arena.lease(8);
+
+        // WHEN
+        arena.release(8, first);
+
+        // THEN
+        Assert.assertEquals(0, arena.getIdle());
+        Assert.assertNotSame(first, arena.lease(8));
+    }
+
+    @Test
+    public void testClear()
+    {
+        // GIVEN
+        MemoryArena<long[]> arena = arena(4);
+        arena.release(8, arena.lease(8));
+        arena.release(8, arena.lease(8));
+
+        // WHEN
+        arena.clear();
+
+        // THEN
+        Assert.assertEquals(0, arena.getIdle());
+        Assert.assertEquals(4, arena.getCapacity());
+    }
+
+    @Test
+    public void testDispose()
+    {
+        // GIVEN
+        final List<long[]> disposed = new ArrayList<>();
+        MemoryArena<long[]> arena = new MemoryArena<long[]>(1)
+        {
+            @Override
+            protected long[] allocate(long key)
+            {
+                return new long[(int) key];
+            }
+
+            @Override
+            protected void wipe(long[] resource)
+            {
+                Arrays.fill(resource, 0);
+            }
+
+            @Override
+            protected void dispose(long[] resource)
+            {
+                disposed.add(resource);
+            }
+        };
+        long[] first = arena.lease(1);
+        long[] second = arena.lease(2);
+
+        // WHEN
+        arena.release(1, first);
+        arena.release(2, second);
+        arena.clear();
+
+        // THEN
+        Assert.assertEquals(2, disposed.size());
+        Assert.assertSame(first, disposed.get(0));
+        Assert.assertSame(second, disposed.get(1));
+    }
+
+    @Test
+    public void testMaxBytes()
+    {
+        // GIVEN
+        MemoryArena<long[]> arena = new MemoryArena<long[]>(10, 100)
+        {
+            @Override
+            protected long[] allocate(long key)
+            {
+                return new long[(int) key];
+            }
+
+            @Override
+            protected void wipe(long[] resource)
+            {
+                Arrays.fill(resource, 0);
+            }
+
+            @Override
+            protected long sizeOf(long key)
+            {
+                return key * 8;
+            }
+        };
+        long[] first = arena.lease(5);
+        long[] second = arena.lease(6);
+        long[] tooLarge = arena.lease(20);
+        long[] fourth = arena.lease(4);
+
+        // WHEN
+        arena.release(5, first);
+        arena.release(6, second);
+        arena.release(20, tooLarge);
+        arena.release(4, fourth);
+
+        // THEN
+        Assert.assertEquals(2, arena.getIdle());
+        Assert.assertEquals(80, arena.getIdleBytes());
+        Assert.assertNotSame(first, arena.lease(5));
+        Assert.assertSame(second, arena.lease(6));
+        Assert.assertEquals(32, arena.getIdleBytes());
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testNegativeCapacity()
+    {
+        arena(-1);
+    }
+
+}
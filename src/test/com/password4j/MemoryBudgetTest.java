@@ -0,0 +1,198 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Argon2;
+import com.password4j.types.MemoryPolicy;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class MemoryBudgetTest
+{
+
+    @After
+    public void tearDown()
+    {
+        MemoryBudget.configure(0, MemoryPolicy.BLOCK, 1000);
+    }
+
+    @Test
+    public void testDisabledByDefault()
+    {
+        // GIVEN
+
+        // WHEN
+        long reserved = MemoryBudget.acquire(Long.MAX_VALUE);
+
+        // THEN
+        Assert.assertEquals(0, MemoryBudget.getBudget());
+        Assert.assertEquals(0, reserved);
+        Assert.assertEquals(0, MemoryBudget.getUsed());
+    }
+
+    @Test
+    public void testReject()
+    {
+        // GIVEN
+        MemoryBudget.configure(100, MemoryPolicy.REJECT, 0);
+        long reserved = MemoryBudget.acquire(60);
+
+        try
+        {
+            // WHEN
+            MemoryBudget.acquire(60);
+            Assert.fail();
+        }
+        catch (MemoryBudgetExceededException e)
+        {
+            // THEN
+            Assert.assertEquals(60, MemoryBudget.getUsed());
+        }
+
+        MemoryBudget.release(reserved);
+        Assert.assertEquals(60, MemoryBudget.acquire(60));
+        MemoryBudget.release(60);
+    }
+
+    @Test(expected = MemoryBudgetExceededException.class)
+    public void testTooLarge()
+    {
+        MemoryBudget.configure(100, MemoryPolicy.BLOCK, 0);
+
+        MemoryBudget.acquire(101);
+    }
+
+    @Test
+    public void testTimeout()
+    {
+        // GIVEN
+        MemoryBudget.configure(100, MemoryPolicy.TIMEOUT, 50);
+        long reserved = MemoryBudget.acquire(100);
+        long start = System.nanoTime();
+
+        try
+        {
+            // WHEN
+            MemoryBudget.acquire(1);
+            Assert.fail();
+        }
+        catch (MemoryBudgetExceededException e)
+        {
+            // THEN
+            Assert.assertTrue(System.nanoTime() - start >= 50_000_000L);
+            Assert.assertEquals(0, MemoryBudget.getWaiters());
+        }
+        MemoryBudget.release(reserved);
+    }
+
+    @Test
+    public void testBlock() throws InterruptedException
+    {
+        // GIVEN
+        MemoryBudget.configure(100, MemoryPolicy.BLOCK, 0);
+        long reserved = MemoryBudget.acquire(100);
+        final AtomicLong waited = new AtomicLong(-1);
+        Thread waiter = new Thread(() -> waited.set(MemoryBudget.acquire(70)));
+        waiter.start();
+        while (MemoryBudget.getWaiters() == 0)
+        {
+            Thread.sleep(1);
+        }
+
+        // WHEN
+        MemoryBudget.release(reserved);
+        waiter.join(10_000);
+
+        // THEN
+        Assert.assertEquals(70, waited.get());
+        Assert.assertEquals(70, MemoryBudget.getUsed());
+        Assert.assertEquals(0, MemoryBudget.getWaiters());
+        MemoryBudget.release(70);
+    }
+
+    @Test
+    public void testFunctionsGiveBackMemory()
+    {
+        // GIVEN
+        MemoryBudget.configure(64 * 1024 * 1024, MemoryPolicy.REJECT, 0);
+
+        // WHEN
+        Hash argon2 = Argon2Function.getInstance(1024, 1, 2, 32, Argon2.ID).hash("password", "saltsalt");
+        Hash scrypt = ScryptFunction.getInstance(1024, 8, 2).hash("password", "saltsalt");
+        Hash balloon = BalloonHashingFunction.getInstance("SHA-256", 16, 1, 2).hash("password", "saltsalt");
+
+        // THEN
+        Assert.assertTrue(Argon2Function.getInstance(1024, 1, 2, 32, Argon2.ID).check("password", argon2.getResult()));
+        Assert.assertTrue(ScryptFunction.getInstance(1024, 8, 2).check("password", scrypt.getResult()));
+        Assert.assertNotNull(balloon.getResult());
+        Assert.assertEquals(0, MemoryBudget.getUsed());
+    }
+
+    @Test
+    public void testTryAcquire()
+    {
+        // GIVEN
+        MemoryBudget.configure(100, MemoryPolicy.BLOCK, 0);
+
+        // WHEN
+        long first = MemoryBudget.tryAcquire(60);
+        long second = MemoryBudget.tryAcquire(60);
+
+        // THEN
+        Assert.assertEquals(60, first);
+        Assert.assertEquals(-1, second);
+        Assert.assertEquals(60, MemoryBudget.getUsed());
+        Assert.assertEquals(0, MemoryBudget.getWaiters());
+        MemoryBudget.release(first);
+    }
+
+    @Test
+    public void testScryptLanesFallBackToSequential()
+    {
+        // GIVEN
+        ScryptFunction scrypt = ScryptFunction.getInstance(1024, 8, 4);
+        Hash expected = scrypt.hash("password", "saltsalt");
+        MemoryBudget.configure(2 * 1024 * 1024, MemoryPolicy.REJECT, 0);
+
+        // WHEN
+        Hash hash = scrypt.hash("password", "saltsalt");
+
+        // THEN
+        Assert.assertTrue(scrypt.isParallel());
+        Assert.assertEquals(expected.getResult(), hash.getResult());
+        Assert.assertEquals(0, MemoryBudget.getUsed());
+    }
+
+    @Test(expected = MemoryBudgetExceededException.class)
+    public void testFunctionRejected()
+    {
+        MemoryBudget.configure(1024 * 1024, MemoryPolicy.REJECT, 0);
+
+        Argon2Function.getInstance(2048, 1, 1, 32, Argon2.ID).hash("password", "saltsalt");
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadBudget()
+    {
+        MemoryBudget.configure(-1, MemoryPolicy.BLOCK, 0);
+    }
+
+}
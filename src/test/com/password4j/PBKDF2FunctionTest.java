@@ -21,12 +21,22 @@ import com.password4j.types.Hmac;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Random;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 public class PBKDF2FunctionTest
@@ -339,4 +349,185 @@ public class PBKDF2FunctionTest
         assertEquals("CompressedPBKDF2Function(a=SHA384, i=5, l=7)", compressed.toString());
     }
 
+    @Test
+    public void testEngineSameAsProvider() throws Exception
+    {
+        Random random = new Random(7);
+        for (Hmac hmac : Hmac.values())
+        {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmac" + hmac.name());
+            for (int i = 0; i < 40; i++)
+            {
+                // GIVEN
+                byte[] password = new byte[random.nextInt(i % 4 == 0 ? 200 : 20)];
+                random.nextBytes(password);
+                if (i % 2 == 0)
+                {
+                    password = Utils.fromCharSequenceToBytes(Long.toString(random.nextLong(), 36) + "ä€\uD83C\uDF78");
+                }
+                byte[] salt = new byte[1 + random.nextInt(32)];
+                random.nextBytes(salt);
+                int iterations = 1 + random.nextInt(3);
+                int length = 8 + random.nextInt(1100);
+
+                // WHEN
+                byte[] expected = factory.generateSecret(new PBEKeySpec(Utils.fromBytesToChars(password), salt, iterations, length)).getEncoded();
+                byte[] derived = PBKDF2Function.internalHash(password, salt, hmac.name(), iterations, length).getEncoded();
+                byte[] fromChars = PBKDF2Function.internalHash(Utils.fromBytesToChars(password), salt, hmac.name(), iterations, length).getEncoded();
+
+                // THEN
+                assertArrayEquals(hmac + " " + Arrays.toString(password), expected, derived);
+                assertArrayEquals(expected, fromChars);
+            }
+        }
+    }
+
+    @Test
+    public void testEngineParallelBlocks() throws Exception
+    {
+        for (Hmac hmac : Hmac.values())
+        {
+            // GIVEN
+            SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmac" + hmac.name());
+            byte[] salt = "saltsaltsalt".getBytes();
+            int length = 3 * hmac.bits() + 40;
+
+            // WHEN
+            byte[] expected = factory.generateSecret(new PBEKeySpec("password".toCharArray(), salt, 1000, length)).getEncoded();
+            byte[] derived = PBKDF2Function.internalHash("password".toCharArray(), salt, hmac.name(), 1000, length).getEncoded();
+
+            // THEN
+            assertTrue(PBKDF2Engine.isParallel(4, 1000));
+            assertArrayEquals(hmac.name(), expected, derived);
+        }
+        assertFalse(PBKDF2Engine.isParallel(1, 1000));
+        assertFalse(PBKDF2Engine.isParallel(4, 999));
+    }
+
+    @Test
+    public void testEngineSameAsMac() throws Exception
+    {
+        byte[][] passwords = {new byte[0], {(byte) 0xff, (byte) 0xfe, 'a'}, new byte[200]};
+        for (byte[] password : passwords)
+        {
+            // GIVEN
+            byte[] salt = "salt".getBytes();
+
+            // WHEN
+            byte[] derived = PBKDF2Engine.getInstance("SHA256", password).derive(salt, 3, 100);
+            byte[] withMac = PBKDF2Engine.deriveWithMac("SHA256", password, salt, 3, 100);
+
+            // THEN
+            assertArrayEquals(derived, withMac);
+        }
+    }
+
+    @Test
+    public void testEngineUnpairedSurrogate() throws Exception
+    {
+        // GIVEN
+        char[] password = {'a', '\uD800', 'b'};
+
+        // WHEN
+        byte[] derived = PBKDF2Function.internalHash(password, "salt".getBytes(), "SHA256", 2, 64).getEncoded();
+
+        // THEN
+        assertArrayEquals(PBKDF2Function.internalHash("a?b".toCharArray(), "salt".getBytes(), "SHA256", 2, 64).getEncoded(), derived);
+    }
+
+    @Test
+    public void testEngineShortKey() throws Exception
+    {
+        // GIVEN
+
+        // WHEN
+        byte[] empty = PBKDF2Function.internalHash("password".getBytes(), "salt".getBytes(), "SHA256", 1, 4).getEncoded();
+        byte[] oneByte = PBKDF2Function.internalHash("password".getBytes(), "salt".getBytes(), "SHA256", 1, 12).getEncoded();
+
+        // THEN
+        assertEquals(0, empty.length);
+        assertArrayEquals(Arrays.copyOf(PBKDF2Function.internalHash("password".getBytes(), "salt".getBytes(), "SHA256", 1, 256).getEncoded(), 1), oneByte);
+    }
+
+    @Test
+    public void testEngineValidation() throws Exception
+    {
+        String[] messages = {"the salt parameter must not be empty", "invalid iterationCount value", "invalid keyLength value"};
+        byte[][] salts = {new byte[0], "salt".getBytes(), "salt".getBytes()};
+        int[] iterations = {1, 0, 1};
+        int[] lengths = {256, 256, -8};
+
+        for (int i = 0; i < messages.length; i++)
+        {
+            try
+            {
+                // WHEN
+                PBKDF2Engine.derive("SHA256", "password".getBytes(), salts[i], iterations[i], lengths[i]);
+                Assert.fail(messages[i]);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // THEN
+                assertEquals(messages[i], e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testEmptySalt()
+    {
+        PBKDF2Function.getInstance(Hmac.SHA256, 10, 256).hash("password", "");
+    }
+
+    @Test
+    public void testUnknownAlgorithmUsesProvider()
+    {
+        // GIVEN
+        PBKDF2Function function = PBKDF2Function.getInstance("SHA3-256", 10, 256);
+
+        try
+        {
+            // WHEN
+            function.hash("password", "salt");
+            Assert.fail();
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // THEN
+            Assert.assertTrue(e.getCause() instanceof java.security.NoSuchAlgorithmException);
+        }
+    }
+
+    @Test
+    public void testIsUtf8()
+    {
+        Random random = new Random(3);
+        for (int i = 0; i < 20000; i++)
+        {
+            // GIVEN
+            byte[] bytes = new byte[random.nextInt(6)];
+            for (int j = 0; j < bytes.length; j++)
+            {
+                // mostly non-ASCII bytes, to exercise all the multibyte cases
+                bytes[j] = (byte) (random.nextInt(3) == 0 ? random.nextInt(128) : 128 + random.nextInt(128));
+            }
+            boolean expected = true;
+            try
+            {
+                StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT).decode(ByteBuffer.wrap(bytes));
+            }
+            catch (CharacterCodingException e)
+            {
+                expected = false;
+            }
+
+            // WHEN
+            boolean valid = Utils.isUtf8(bytes);
+
+            // THEN
+            assertEquals(Arrays.toString(bytes), expected, valid);
+        }
+    }
+
 }
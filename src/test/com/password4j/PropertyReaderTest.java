@@ -16,6 +16,7 @@
  */
 package com.password4j;
 
+import com.password4j.types.MemoryBackend;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -52,6 +53,23 @@ public class PropertyReaderTest
         Assert.assertEquals(-9, minusNine);
     }
 
+    @Test
+    public void testEnum()
+    {
+        // GIVEN
+        String key = "test.enum";
+
+        // WHEN
+        MemoryBackend offHeap = PropertyReader.readEnum(key, MemoryBackend.HEAP);
+        MemoryBackend invalid = PropertyReader.readEnum(key + ".invalid", MemoryBackend.HEAP);
+        MemoryBackend missing = PropertyReader.readEnum(key + "abc", MemoryBackend.HEAP);
+
+        // THEN
+        Assert.assertEquals(MemoryBackend.OFF_HEAP, offHeap);
+        Assert.assertEquals(MemoryBackend.HEAP, invalid);
+        Assert.assertEquals(MemoryBackend.HEAP, missing);
+    }
+
     @Test
     public void testBool()
     {
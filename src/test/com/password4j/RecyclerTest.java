@@ -0,0 +1,206 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+
+public class RecyclerTest
+{
+
+    private static Recycler<int[]> recycler(Recycler.Mode mode, int capacity)
+    {
+        return new Recycler<int[]>(mode, capacity)
+        {
+            @Override
+            protected int[] create()
+            {
+                return new int[4];
+            }
+
+            @Override
+            protected void clear(int[] object)
+            {
+                Arrays.fill(object, 0);
+            }
+        };
+    }
+
+    @Test
+    public void testThreadLocal()
+    {
+        // GIVEN
+        Recycler<int[]> recycler = recycler(Recycler.Mode.THREADLOCAL, 0);
+        int[] first = recycler.acquire();
+        first[0] = 42;
+
+        // WHEN
+        int[] nested = recycler.acquire();
+        recycler.release(first);
+        recycler.release(nested);
+        int[] second = recycler.acquire();
+
+        // THEN
+        Assert.assertNotSame(first, nested);
+        Assert.assertSame(first, second);
+        Assert.assertArrayEquals(new int[4], second);
+    }
+
+    @Test
+    public void testThreadLocalOtherThread() throws Exception
+    {
+        // GIVEN
+        final Recycler<int[]> recycler = recycler(Recycler.Mode.THREADLOCAL, 0);
+        final int[] first = recycler.acquire();
+        recycler.release(first);
+        final int[][] other = new int[1][];
+
+        // WHEN
+        Thread thread = new Thread(() -> other[0] = recycler.acquire());
+        thread.start();
+        thread.join();
+
+        // THEN
+        Assert.assertNotNull(other[0]);
+        Assert.assertNotSame(first, other[0]);
+        Assert.assertSame(first, recycler.acquire());
+    }
+
+    @Test
+    public void testShared()
+    {
+        // GIVEN
+        Recycler<int[]> recycler = recycler(Recycler.Mode.SHARED, 1);
+        int[] first = recycler.acquire();
+        int[] second = recycler.acquire();
+
+        // WHEN
+        recycler.release(first);
+        recycler.release(second);
+
+        // THEN
+        Assert.assertEquals(1, recycler.getIdle());
+        Assert.assertSame(first, recycler.acquire());
+        Assert.assertEquals(0, recycler.getIdle());
+        Assert.assertNotSame(first, recycler.acquire());
+    }
+
+    @Test
+    public void testNone()
+    {
+        // GIVEN
+        Recycler<int[]> recycler = recycler(Recycler.Mode.NONE, 8);
+        int[] first = recycler.acquire();
+        first[0] = 42;
+
+        // WHEN
+        recycler.release(first);
+        int[] second = recycler.acquire();
+
+        // THEN
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(42, first[0]);
+        Assert.assertNotSame(recycler.get(), recycler.get());
+    }
+
+    @Test
+    public void testGet()
+    {
+        // GIVEN
+        Recycler<int[]> threadLocal = recycler(Recycler.Mode.THREADLOCAL, 0);
+        Recycler<int[]> shared = recycler(Recycler.Mode.SHARED, 8);
+
+        // WHEN
+        int[] first = threadLocal.get();
+
+        // THEN
+        Assert.assertSame(first, threadLocal.get());
+        Assert.assertNotSame(shared.get(), shared.get());
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testNegativeCapacity()
+    {
+        recycler(Recycler.Mode.SHARED, -1);
+    }
+
+    @Test
+    public void testDigests() throws Exception
+    {
+        // GIVEN
+        MessageDigest first = Recycler.acquireDigest("SHA-256");
+        first.update((byte) 1);
+        Recycler.releaseDigest("SHA-256", first);
+
+        // WHEN
+        MessageDigest second = Recycler.acquireDigest("SHA-256");
+        byte[] digest = second.digest("abc".getBytes());
+        Recycler.releaseDigest("SHA-256", second);
+
+        // THEN
+        Assert.assertArrayEquals(MessageDigest.getInstance("SHA-256").digest("abc".getBytes()), digest);
+        if (Recycler.MODE == Recycler.Mode.THREADLOCAL)
+        {
+            Assert.assertSame(first, second);
+        }
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void testUnknownDigest() throws Exception
+    {
+        Recycler.acquireDigest("notAnAlgorithm");
+    }
+
+    @Test
+    public void testMacs() throws Exception
+    {
+        // GIVEN
+        Mac first = Recycler.acquireMac("HmacSHA256");
+        first.init(new SecretKeySpec("password".getBytes(), "HmacSHA256"));
+        byte[] expected = first.doFinal("abc".getBytes());
+        Recycler.releaseMac("HmacSHA256", first);
+
+        // WHEN
+        Mac second = Recycler.acquireMac("HmacSHA256");
+        byte[] afterRelease = Recycler.MODE == Recycler.Mode.THREADLOCAL ? second.doFinal("abc".getBytes()) : null;
+        second.init(new SecretKeySpec("password".getBytes(), "HmacSHA256"));
+        byte[] mac = second.doFinal("abc".getBytes());
+        Recycler.releaseMac("HmacSHA256", second);
+
+        // THEN
+        Assert.assertArrayEquals(expected, mac);
+        if (Recycler.MODE == Recycler.Mode.THREADLOCAL)
+        {
+            Assert.assertSame(first, second);
+            Assert.assertFalse(Arrays.equals(expected, afterRelease));
+        }
+    }
+
+    @Test(expected = NoSuchAlgorithmException.class)
+    public void testUnknownMac() throws Exception
+    {
+        Recycler.acquireMac("notAnAlgorithm");
+    }
+
+}
@@ -1,13 +1,20 @@
 package com.password4j;
 
 import com.password4j.types.Bcrypt;
+import com.password4j.types.MemoryBackend;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Properties;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 public class ScryptFunctionTest
@@ -271,6 +278,254 @@ public class ScryptFunctionTest
         PropertyReader.properties = oldProps;
     }
 
+    @Test
+    public void testSalsa208()
+    {
+        // GIVEN
+        byte[] bytes = fromHex("7e879a214f3ec9867ca940e641718f26baee555b8c61c1b50df846116dcd3b1dee24f319df9b3d8514121e4b5ac5aa3276021d2909c74829edebc68db8b8c25e");
+        int[] words = new int[20];
+        ScryptFunction.toWords(bytes, 0, words, 2, 16);
+
+        // WHEN
+        ScryptFunction.salsa208(words, 2);
+        ScryptFunction.salsa208(bytes);
+        byte[] fromWords = new byte[64];
+        ScryptFunction.toBytes(words, 2, fromWords, 0, 16);
+
+        // THEN
+        String expected = "a41f859c6608cc993b81cacb020cef05044b2181a2fd337dfd7b1c6396682f29b4393168e3c9e6bcfe6bc5b7a06d96bae424cc102c91745c24ad673dc7618f81";
+        assertEquals(expected, Utils.toHex(fromWords));
+        assertEquals(expected, Utils.toHex(bytes));
+        Assert.assertEquals(0, words[0] | words[1] | words[18] | words[19]);
+    }
+
+    @Test
+    public void testRFC7914()
+    {
+        // GIVEN
+        ScryptFunction scrypt1 = new ScryptFunction(16384, 8, 1);
+        ScryptFunction scrypt2 = new ScryptFunction(1024, 8, 16);
+
+        // WHEN
+        Hash hash1 = scrypt1.hash("pleaseletmein", "SodiumChloride");
+        Hash hash2 = scrypt2.hash("password", "NaCl");
+
+        // THEN
+        assertEquals("7023bdcb3afd7348461c06cd81fd38ebfda8fbba904f8e3ea9b543f6545da1f2d5432955613f0fcf62d49705242a9af9e61e85dc0d651e40dfcf017b45575887",
+                Utils.toHex(hash1.getBytes()));
+        assertEquals("fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640",
+                Utils.toHex(hash2.getBytes()));
+    }
+
+    @Test
+    public void testRawPassword() throws Exception
+    {
+        // GIVEN
+        ScryptFunction scrypt = new ScryptFunction(16, 8, 2);
+        byte[] password = {(byte) 0xff, (byte) 0xfe, 'p', 'a', 's', 's', (byte) 0xc3};
+
+        // WHEN
+        byte[] derived = scrypt.scrypt(password, "NaCl".getBytes(), 32);
+
+        // THEN
+        assertEquals("64efb26dbb769c5ebf026b569c30700abe8f5b81341887a886d849d5448748c3", Utils.toHex(derived));
+    }
+
+    @Test
+    public void testCheckNormalisedPassword()
+    {
+        // GIVEN
+        ScryptFunction scrypt = new ScryptFunction(16, 8, 1);
+        byte[] password = {(byte) 0xff, (byte) 0xfe, 'p', 'a', 's', 's', (byte) 0xc3};
+        byte[] normalised = Utils.fromCharSequenceToBytes(Utils.fromBytesToString(password));
+        byte[] salt = "NaCl".getBytes();
+
+        // WHEN
+        byte[] hash = scrypt.hash(password, salt).getResultAsBytes();
+        byte[] legacyHash = scrypt.hash(normalised, salt).getResultAsBytes();
+
+        // THEN
+        assertTrue(scrypt.check(password, hash));
+        assertTrue(scrypt.check(password, legacyHash));
+        assertFalse(scrypt.check("pass".getBytes(), legacyHash));
+        assertFalse(scrypt.check(normalised, hash));
+        assertFalse(scrypt.check(new byte[] {(byte) 0xff, 'x'}, hash));
+        assertFalse(scrypt.check(new byte[] {(byte) 0xff, 'x'}, legacyHash));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDerivedKeyLength() throws Exception
+    {
+        new ScryptFunction(16, 8, 1).scrypt("password".getBytes(), "NaCl".getBytes(), 0);
+    }
+
+    @Test
+    public void testBlockmixBytesAndWords()
+    {
+        // GIVEN
+        ScryptFunction scrypt = new ScryptFunction(16, 2, 1);
+        byte[] xy = new byte[512];
+        for (int i = 0; i < 256; i++)
+        {
+            xy[i] = (byte) (i * 31 + 7);
+        }
+        int[] words = new int[128];
+        ScryptFunction.toWords(xy, 0, words, 0, 64);
+
+        // WHEN
+        scrypt.blockmixSalsa8(xy, 0, 256);
+        scrypt.blockmixSalsa8(words, 0, 64);
+        byte[] fromWords = new byte[256];
+        ScryptFunction.toBytes(words, 64, fromWords, 0, 64);
+
+        // THEN
+        Assert.assertArrayEquals(Arrays.copyOf(xy, 256), fromWords);
+    }
+
+    @Test
+    public void testParallelLanes()
+    {
+        // GIVEN
+        ScryptFunction scrypt = new ScryptFunction(64, 2, 5);
+        byte[] sequential = new byte[5 * 128 * 2];
+        for (int i = 0; i < sequential.length; i++)
+        {
+            sequential[i] = (byte) (i * 13 + 5);
+        }
+        byte[] parallel = sequential.clone();
+
+        // WHEN
+        scrypt.roMix(sequential, false);
+        scrypt.roMix(parallel, true);
+
+        // THEN
+        Assert.assertTrue(scrypt.isParallel());
+        Assert.assertFalse(new ScryptFunction(64, 2, 1).isParallel());
+        Assert.assertFalse(new ScryptFunction(1 << 20, 8, 2).isParallel());
+        Assert.assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testSMixBytes()
+    {
+        // GIVEN
+        ScryptFunction scrypt = new ScryptFunction(64, 2, 2);
+        byte[] words = new byte[2 * 128 * 2];
+        for (int i = 0; i < words.length; i++)
+        {
+            words[i] = (byte) (i * 13 + 5);
+        }
+        byte[] bytes = words.clone();
+        byte[] vArray = new byte[128 * 2 * 64];
+        byte[] xyArray = new byte[256 * 2];
+
+        // WHEN
+        scrypt.roMix(words, false);
+        scrypt.sMix(bytes, 0, vArray, xyArray);
+        scrypt.sMix(bytes, 128 * 2, vArray, xyArray);
+
+        // THEN
+        Assert.assertArrayEquals(words, bytes);
+        Assert.assertArrayEquals(Arrays.copyOfRange(bytes, 128 * 2, 2 * 128 * 2), Arrays.copyOf(xyArray, 128 * 2));
+        Assert.assertFalse(Arrays.equals(new byte[vArray.length], vArray));
+    }
+
+    @Test
+    public void testOffHeap()
+    {
+        // GIVEN
+        ScryptFunction heap = ScryptFunction.getInstance(1024, 8, 2, 64, MemoryBackend.HEAP);
+        ScryptFunction offHeap = ScryptFunction.getInstance(1024, 8, 2, 64, MemoryBackend.OFF_HEAP);
+
+        // WHEN
+        Hash hash = offHeap.hash("password", "saltsalt");
+
+        // THEN
+        Assert.assertEquals(MemoryBackend.OFF_HEAP, offHeap.getMemoryBackend());
+        Assert.assertEquals(heap, offHeap);
+        Assert.assertNotSame(heap, offHeap);
+        Assert.assertEquals(heap.hash("password", "saltsalt").getResult(), hash.getResult());
+        Assert.assertTrue(offHeap.check("password", hash.getResult()));
+    }
+
+    @Test
+    public void testReleaseWorkingMemory()
+    {
+        // GIVEN
+        ScryptFunction.getInstance(1024, 1, 1).hash("password", "saltsalt");
+        Assert.assertTrue(ScryptFunction.getIdleWorkingMemory() >= 128 * 1024);
 
+        // WHEN
+        ScryptFunction.releaseWorkingMemory();
+
+        // THEN
+        assertEquals(0, ScryptFunction.getIdleWorkingMemory());
+    }
+
+    @Test
+    public void testWorkingMemoryIsReused()
+    {
+        // GIVEN
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+        ScryptFunction scrypt = ScryptFunction.getInstance(16384, 8, 1);
+        String expected = scrypt.hash("password", "saltsalt").getResult();
+
+        // WHEN
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        String result = scrypt.hash("password", "saltsalt").getResult();
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        // THEN
+        Assert.assertEquals(expected, result);
+        Assert.assertTrue("allocated " + allocated + " bytes", allocated < 1024 * 1024);
+    }
+
+    @Test
+    public void testVectorBlockMix()
+    {
+        // GIVEN
+        ScryptBlockMix vector = ScryptFunction.loadVectorBlockMix(null);
+        Assume.assumeNotNull(vector);
+        Random random = new Random(42);
+
+        for (int r = 1; r <= 8; r *= 2)
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                byte[] block = new byte[128 * r];
+                random.nextBytes(block);
+                int[] expected = new int[64 * r];
+                int[] words = new int[64 * r];
+                ScryptFunction.toWords(block, 0, expected, 0, 32 * r);
+                ScryptFunction.toWords(block, 0, words, 0, 32 * r, vector.order());
+
+                // WHEN
+                ScryptFunction.SCALAR_BLOCK_MIX.blockMix(expected, 0, 32 * r, r);
+                vector.blockMix(words, 0, 32 * r, r);
+                byte[] expectedBytes = new byte[128 * r];
+                byte[] bytes = new byte[128 * r];
+                ScryptFunction.toBytes(expected, 32 * r, expectedBytes, 0, 32 * r);
+                ScryptFunction.toBytes(words, 32 * r, bytes, 0, 32 * r, vector.order());
+
+                // THEN
+                Assert.assertEquals(expected[32 * r + 16 * (2 * r - 1)], words[32 * r + 16 * (2 * r - 1)]);
+                Assert.assertArrayEquals(expectedBytes, bytes);
+            }
+        }
+    }
+
+    private static byte[] fromHex(String hex)
+    {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
 
 }
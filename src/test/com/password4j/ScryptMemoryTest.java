@@ -0,0 +1,113 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.MemoryBackend;
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class ScryptMemoryTest
+{
+
+    @Test
+    public void testStoreAndXor()
+    {
+        for (ScryptMemory memory : allMemories(8, 1))
+        {
+            // GIVEN
+            int[] block = new int[memory.blockWords + 3];
+            for (int i = 0; i < block.length; i++)
+            {
+                block[i] = i * 7 + 1;
+            }
+            int[] other = block.clone();
+
+            // WHEN
+            memory.store(5, block, 3);
+            memory.xor(5, other, 3);
+            memory.xor(4, block, 3);
+
+            // THEN
+            for (int i = 0; i < 3; i++)
+            {
+                Assert.assertEquals(i * 7 + 1, other[i]);
+            }
+            for (int i = 3; i < other.length; i++)
+            {
+                Assert.assertEquals(0, other[i]);
+                Assert.assertEquals(i * 7 + 1, block[i]);
+            }
+            memory.free();
+        }
+    }
+
+    @Test
+    public void testWipe()
+    {
+        for (ScryptMemory memory : allMemories(4, 2))
+        {
+            // GIVEN
+            int[] block = new int[memory.blockWords];
+            block[memory.blockWords - 1] = 42;
+            for (int i = 0; i < 4; i++)
+            {
+                memory.store(i, block, 0);
+            }
+            memory.xy()[0] = 42;
+
+            // WHEN
+            memory.wipe();
+
+            // THEN
+            for (int i = 0; i < 4; i++)
+            {
+                int[] read = new int[memory.blockWords];
+                memory.xor(i, read, 0);
+                Assert.assertEquals(0, read[memory.blockWords - 1]);
+            }
+            Assert.assertEquals(0, memory.xy()[0]);
+            Assert.assertEquals(2 * memory.blockWords, memory.xy().length);
+            memory.free();
+        }
+    }
+
+    @Test
+    public void testOffHeapChunks()
+    {
+        // GIVEN
+        int blockBytes = 128;
+
+        // WHEN
+        ScryptMemory.OffHeap memory = new ScryptMemory.OffHeap(16, 1, 4 * blockBytes);
+        ScryptMemory.OffHeap single = new ScryptMemory.OffHeap(16, 1, ScryptMemory.OffHeap.CHUNK_BYTES);
+
+        // THEN
+        Assert.assertEquals(4, memory.chunks());
+        Assert.assertEquals(1, single.chunks());
+        memory.free();
+        single.free();
+    }
+
+    private static ScryptMemory[] allMemories(int workFactor, int resources)
+    {
+        return new ScryptMemory[]{ScryptMemory.allocate(MemoryBackend.HEAP, workFactor, resources),
+                ScryptMemory.allocate(MemoryBackend.OFF_HEAP, workFactor, resources),
+                new ScryptMemory.OffHeap(workFactor, resources, 2 * 128 * resources)};
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ *  (C) Copyright 2026 Password4j (http://password4j.com/).
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package com.password4j;
+
+import com.password4j.types.Argon2;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+public class WorkerPoolTest
+{
+
+    @After
+    public void tearDown()
+    {
+        WorkerPool.setExecutorService(null);
+    }
+
+    @Test
+    public void testShared()
+    {
+        // GIVEN
+        ExecutorService first = WorkerPool.get();
+
+        // WHEN
+        Argon2Function.getInstance(64, 1, 2, 32, Argon2.ID).hash("password", "saltsalt");
+        BalloonHashingFunction.getInstance("SHA-256", 16, 1, 2).hash("password", "saltsalt");
+
+        // THEN
+        Assert.assertSame(first, WorkerPool.get());
+        Assert.assertFalse(first.isShutdown());
+    }
+
+    @Test
+    public void testCustomExecutorService()
+    {
+        // GIVEN
+        final AtomicInteger threads = new AtomicInteger();
+        ExecutorService custom = Executors.newCachedThreadPool(runnable -> {
+            threads.incrementAndGet();
+            Thread thread = new Thread(runnable, "custom-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        String expected = Argon2Function.getInstance(64, 1, 2, 32, Argon2.ID).hash("password", "saltsalt").getResult();
+
+        // WHEN
+        WorkerPool.setExecutorService(custom);
+        String result = Argon2Function.getInstance(64, 1, 2, 32, Argon2.ID).hash("password", "saltsalt").getResult();
+
+        // THEN
+        Assert.assertSame(custom, WorkerPool.get());
+        Assert.assertEquals(expected, result);
+        Assert.assertTrue(threads.get() > 0);
+        custom.shutdown();
+    }
+
+    @Test
+    public void testDefaultIsRestored()
+    {
+        // GIVEN
+        ExecutorService custom = Executors.newSingleThreadExecutor();
+        WorkerPool.setExecutorService(custom);
+
+        // WHEN
+        WorkerPool.setExecutorService(null);
+
+        // THEN
+        Assert.assertNotSame(custom, WorkerPool.get());
+        Assert.assertFalse(custom.isShutdown());
+        custom.shutdown();
+    }
+
+    @Test
+    public void testCallerRunsWhenSaturated() throws InterruptedException
+    {
+        // GIVEN
+        ExecutorService single = Executors.newFixedThreadPool(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch busy = new CountDownLatch(1);
+        single.execute(() -> {
+            busy.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        busy.await();
+        WorkerPool.setExecutorService(single);
+
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+        {
+            tasks.add(() -> Thread.currentThread().getName());
+        }
+
+        // WHEN
+        List<String> threads = WorkerPool.invokeAll(tasks);
+
+        // THEN
+        boolean saturated = WorkerPool.isSaturated(single);
+        release.countDown();
+        single.shutdown();
+        Assert.assertTrue(saturated);
+        Assert.assertEquals(Arrays.asList(Thread.currentThread().getName(), Thread.currentThread().getName(),
+                Thread.currentThread().getName()), threads);
+    }
+
+    @Test
+    public void testCallerRunsWhenRejected()
+    {
+        // GIVEN
+        ExecutorService rejecting = Executors.newSingleThreadExecutor();
+        rejecting.shutdown();
+        String expected = new Argon2Function(64, 2, 4, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13).hash("password", "saltsalt").getResult();
+        String expectedBalloon = BalloonHashingFunction.getInstance("SHA-256", 16, 1, 3).hash("password", "saltsalt").getResult();
+
+        // WHEN
+        WorkerPool.setExecutorService(rejecting);
+        String result = new Argon2Function(64, 2, 4, 32, Argon2.ID, Argon2Function.ARGON2_VERSION_13).hash("password", "saltsalt").getResult();
+        String resultBalloon = BalloonHashingFunction.getInstance("SHA-256", 16, 1, 3).hash("password", "saltsalt").getResult();
+
+        // THEN
+        Assert.assertEquals(expected, result);
+        Assert.assertEquals(expectedBalloon, resultBalloon);
+    }
+
+    @Test
+    public void testFailure()
+    {
+        // GIVEN
+        List<Callable<String>> tasks = new ArrayList<>();
+        tasks.add(() -> "ok");
+        tasks.add(() -> {
+            throw new UnsupportedOperationException("boom");
+        });
+
+        try
+        {
+            // WHEN
+            WorkerPool.invokeAll(tasks);
+            Assert.fail();
+        }
+        catch (IllegalStateException e)
+        {
+            // THEN
+            Assert.assertTrue(e.getCause() instanceof UnsupportedOperationException);
+        }
+    }
+
+    @Test(expected = BadParametersException.class)
+    public void testBadSize()
+    {
+        Utils.createExecutorService(0, "test");
+    }
+
+}